@@ -35,6 +35,7 @@ public class AudioVisualizationFragment extends Fragment {
 				.setBackgroundColorRes(R.color.av_color_bg)
 				.setLayerColors(R.array.av_colors)
                 .setBubblesPerLayer(16)
+				.setMaxFps(60)
 				.build();
 	}
 
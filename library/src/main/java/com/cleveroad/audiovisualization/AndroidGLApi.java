@@ -0,0 +1,269 @@
+package com.cleveroad.audiovisualization;
+
+import android.annotation.TargetApi;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.os.Build;
+
+import java.nio.Buffer;
+
+/**
+ * {@link GLApi} implementation calling {@link GLES20} and {@link GLES30}. OpenGL ES 3.0 methods must be called only
+ * when current context supports them.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+class AndroidGLApi implements GLApi {
+
+	/**
+	 * Shared instance, implementation has no state.
+	 */
+	static final AndroidGLApi INSTANCE = new AndroidGLApi();
+
+	private AndroidGLApi() {
+	}
+
+	@Override
+	public int glCreateShader(int type) {
+		return GLES20.glCreateShader(type);
+	}
+
+	@Override
+	public void glShaderSource(int shader, String string) {
+		GLES20.glShaderSource(shader, string);
+	}
+
+	@Override
+	public void glCompileShader(int shader) {
+		GLES20.glCompileShader(shader);
+	}
+
+	@Override
+	public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+		GLES20.glGetShaderiv(shader, pname, params, offset);
+	}
+
+	@Override
+	public String glGetShaderInfoLog(int shader) {
+		return GLES20.glGetShaderInfoLog(shader);
+	}
+
+	@Override
+	public int glCreateProgram() {
+		return GLES20.glCreateProgram();
+	}
+
+	@Override
+	public void glAttachShader(int program, int shader) {
+		GLES20.glAttachShader(program, shader);
+	}
+
+	@Override
+	public void glDetachShader(int program, int shader) {
+		GLES20.glDetachShader(program, shader);
+	}
+
+	@Override
+	public void glDeleteShader(int shader) {
+		GLES20.glDeleteShader(shader);
+	}
+
+	@Override
+	public void glLinkProgram(int program) {
+		GLES20.glLinkProgram(program);
+	}
+
+	@Override
+	public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+		GLES20.glGetProgramiv(program, pname, params, offset);
+	}
+
+	@Override
+	public String glGetProgramInfoLog(int program) {
+		return GLES20.glGetProgramInfoLog(program);
+	}
+
+	@Override
+	public void glDeleteProgram(int program) {
+		GLES20.glDeleteProgram(program);
+	}
+
+	@Override
+	public void glUseProgram(int program) {
+		GLES20.glUseProgram(program);
+	}
+
+	@Override
+	public int glGetAttribLocation(int program, String name) {
+		return GLES20.glGetAttribLocation(program, name);
+	}
+
+	@Override
+	public int glGetUniformLocation(int program, String name) {
+		return GLES20.glGetUniformLocation(program, name);
+	}
+
+	@Override
+	public void glUniform1i(int location, int x) {
+		GLES20.glUniform1i(location, x);
+	}
+
+	@Override
+	public void glUniform1f(int location, float x) {
+		GLES20.glUniform1f(location, x);
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, float[] v, int offset) {
+		GLES20.glUniform4fv(location, count, v, offset);
+	}
+
+	@Override
+	public String glGetString(int name) {
+		return GLES20.glGetString(name);
+	}
+
+	@Override
+	public void glGetFloatv(int pname, float[] params, int offset) {
+		GLES20.glGetFloatv(pname, params, offset);
+	}
+
+	@Override
+	public void glGetIntegerv(int pname, int[] params, int offset) {
+		GLES20.glGetIntegerv(pname, params, offset);
+	}
+
+	@Override
+	public void glViewport(int x, int y, int width, int height) {
+		GLES20.glViewport(x, y, width, height);
+	}
+
+	@Override
+	public void glClearColor(float red, float green, float blue, float alpha) {
+		GLES20.glClearColor(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glClear(int mask) {
+		GLES20.glClear(mask);
+	}
+
+	@Override
+	public void glEnable(int cap) {
+		GLES20.glEnable(cap);
+	}
+
+	@Override
+	public void glDisable(int cap) {
+		GLES20.glDisable(cap);
+	}
+
+	@Override
+	public void glBlendFunc(int sfactor, int dfactor) {
+		GLES20.glBlendFunc(sfactor, dfactor);
+	}
+
+	@Override
+	public void glStencilFunc(int func, int ref, int mask) {
+		GLES20.glStencilFunc(func, ref, mask);
+	}
+
+	@Override
+	public void glStencilOp(int fail, int zfail, int zpass) {
+		GLES20.glStencilOp(fail, zfail, zpass);
+	}
+
+	@Override
+	public void glGenBuffers(int n, int[] buffers, int offset) {
+		GLES20.glGenBuffers(n, buffers, offset);
+	}
+
+	@Override
+	public void glDeleteBuffers(int n, int[] buffers, int offset) {
+		GLES20.glDeleteBuffers(n, buffers, offset);
+	}
+
+	@Override
+	public void glBindBuffer(int target, int buffer) {
+		GLES20.glBindBuffer(target, buffer);
+	}
+
+	@Override
+	public void glBufferData(int target, int size, Buffer data, int usage) {
+		GLES20.glBufferData(target, size, data, usage);
+	}
+
+	@Override
+	public void glBufferSubData(int target, int offset, int size, Buffer data) {
+		GLES20.glBufferSubData(target, offset, size, data);
+	}
+
+	@Override
+	public void glEnableVertexAttribArray(int index) {
+		GLES20.glEnableVertexAttribArray(index);
+	}
+
+	@Override
+	public void glDisableVertexAttribArray(int index) {
+		GLES20.glDisableVertexAttribArray(index);
+	}
+
+	@Override
+	public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer ptr) {
+		GLES20.glVertexAttribPointer(index, size, type, normalized, stride, ptr);
+	}
+
+	@Override
+	public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+		GLES20.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+	}
+
+	@Override
+	public void glDrawArrays(int mode, int first, int count) {
+		GLES20.glDrawArrays(mode, first, count);
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, Buffer indices) {
+		GLES20.glDrawElements(mode, count, type, indices);
+	}
+
+	@Override
+	public int glGetUniformBlockIndex(int program, String uniformBlockName) {
+		return GLES30.glGetUniformBlockIndex(program, uniformBlockName);
+	}
+
+	@Override
+	public void glUniformBlockBinding(int program, int uniformBlockIndex, int uniformBlockBinding) {
+		GLES30.glUniformBlockBinding(program, uniformBlockIndex, uniformBlockBinding);
+	}
+
+	@Override
+	public void glBindBufferBase(int target, int index, int buffer) {
+		GLES30.glBindBufferBase(target, index, buffer);
+	}
+
+	@Override
+	public void glGenVertexArrays(int n, int[] arrays, int offset) {
+		GLES30.glGenVertexArrays(n, arrays, offset);
+	}
+
+	@Override
+	public void glDeleteVertexArrays(int n, int[] arrays, int offset) {
+		GLES30.glDeleteVertexArrays(n, arrays, offset);
+	}
+
+	@Override
+	public void glBindVertexArray(int array) {
+		GLES30.glBindVertexArray(array);
+	}
+
+	@Override
+	public void glVertexAttribDivisor(int index, int divisor) {
+		GLES30.glVertexAttribDivisor(index, divisor);
+	}
+
+	@Override
+	public void glDrawArraysInstanced(int mode, int first, int count, int instanceCount) {
+		GLES30.glDrawArraysInstanced(mode, first, count, instanceCount);
+	}
+}
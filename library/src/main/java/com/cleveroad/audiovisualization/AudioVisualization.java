@@ -8,7 +8,8 @@ import android.support.annotation.NonNull;
 public interface AudioVisualization {
 
     /**
-     * Link view to custom implementation of {@link DbmHandler}.
+     * Link view to custom implementation of {@link DbmHandler}. Several views can be linked to one handler.
+     * Previous handler is released unless other views are linked to it.
      * @param dbmHandler instance of DbmHandler
      */
     <T> void linkTo(@NonNull DbmHandler<T> dbmHandler);
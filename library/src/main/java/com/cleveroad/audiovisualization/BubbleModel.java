@@ -0,0 +1,122 @@
+package com.cleveroad.audiovisualization;
+
+import java.util.Random;
+
+/**
+ * Simulation of single bubble. Doesn't depend on OpenGL.
+ */
+class BubbleModel {
+
+	/**
+	 * Duration of bubble movement.
+	 */
+	private static final long BUBBLE_ANIMATION_DURATION = 1000;
+	private static final float BUBBLE_D_ANGLE = (float) (2 * Math.PI / BUBBLE_ANIMATION_DURATION);
+	private static final float TOP_Y = 1f;
+
+	private final Random random;
+	private float fromY;
+	private float size;
+	private float speed;
+	private float virtualSpeed;
+	private float centerY = -1;
+	private float startX;
+	private float angle;
+	private float x;
+	private float y;
+	private float prevCenterY;
+	private float prevX;
+	private float prevY;
+
+	public BubbleModel(Random random) {
+		this.random = random;
+		angle = (float) (random.nextFloat() * 2 * Math.PI);
+	}
+
+	/**
+	 * Update position of bubble.
+	 * @param dt time elapsed from last calculations
+	 */
+	public void update(float dt) {
+		prevX = x;
+		prevY = y;
+		prevCenterY = centerY;
+		angle += dt * BUBBLE_D_ANGLE;
+		fromY += dt * speed;
+		centerY += dt * virtualSpeed;
+		updatePosition();
+	}
+
+	private void updatePosition() {
+		x = startX + (float) (0.05f * Math.sin(angle)) + size / 2;
+		y = fromY + size / 2;
+	}
+
+	/**
+	 * Get X coordinate of bubble's center.
+	 * @param interpolation interpolation factor between previous and current update in range [0..1]
+	 */
+	public float getX(float interpolation) {
+		return Utils.lerp(prevX, x, interpolation);
+	}
+
+	/**
+	 * Get Y coordinate of bubble's center.
+	 * @param interpolation interpolation factor between previous and current update in range [0..1]
+	 */
+	public float getY(float interpolation) {
+		return Utils.lerp(prevY, y, interpolation);
+	}
+
+	/**
+	 * Get bubble's diameter in OpenGL X units.
+	 */
+	public float getSize() {
+		return size;
+	}
+
+	/**
+	 * Get progress of bubble's movement in range [-1..1].
+	 * @param interpolation interpolation factor between previous and current update in range [0..1]
+	 */
+	public float getProgress(float interpolation) {
+		return Utils.lerp(prevCenterY, centerY, interpolation);
+	}
+
+	/**
+	 * Get bubble's current alpha.
+	 * @param interpolation interpolation factor between previous and current update in range [0..1]
+	 */
+	public float getAlpha(float interpolation) {
+		return Utils.between(TOP_Y - getProgress(interpolation) / TOP_Y, 0, 1);
+	}
+
+	/**
+	 * Check if bubble is moved out of specified area.
+	 * @return true if bubble is outside of specified area, false otherwise
+	 */
+	public boolean isOffScreen() {
+		return centerY > TOP_Y;
+	}
+
+	/**
+	 * Update bubble's area of movement.
+	 * @param startX start X position
+	 * @param fromY start Y position
+	 * @param toY end Y position
+	 * @param size size of bubble
+	 */
+	public void reset(float startX, float fromY, float toY, float size) {
+		this.fromY = fromY;
+		this.size = size;
+		this.startX = startX;
+		this.centerY = -1;
+		float coef = 0.4f + random.nextFloat() * 0.8f; // randomize speed of movement
+		this.speed = (toY - fromY) / BUBBLE_ANIMATION_DURATION * coef;
+		this.virtualSpeed = 2f / BUBBLE_ANIMATION_DURATION * coef;
+		updatePosition();
+		prevX = x;
+		prevY = y;
+		prevCenterY = centerY;
+	}
+}
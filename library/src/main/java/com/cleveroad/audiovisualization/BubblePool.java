@@ -0,0 +1,90 @@
+package com.cleveroad.audiovisualization;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-capacity pool of bubbles. Visible bubbles are kept in a dense array and iterated by index, free bubbles are
+ * kept in a stack, so nothing is allocated per frame. Everything except {@link #requestSpawn()} must be called
+ * on rendering thread.
+ */
+class BubblePool {
+
+	private final BubbleModel[] live;
+	private final BubbleModel[] free;
+	private int liveCount;
+	private int freeCount;
+
+	/**
+	 * Spawn requests posted by data thread. Requests carry no data (number of bubbles and their parameters are
+	 * randomized on rendering thread, so simulation stays deterministic), so a counter works as a lock-free queue.
+	 */
+	private final AtomicInteger spawnRequests = new AtomicInteger();
+
+	public BubblePool(BubbleModel[] bubbles) {
+		live = new BubbleModel[bubbles.length];
+		free = new BubbleModel[bubbles.length];
+		System.arraycopy(bubbles, 0, free, 0, bubbles.length);
+		freeCount = bubbles.length;
+	}
+
+	/**
+	 * Request new burst of bubbles. Safe to call from any thread.
+	 */
+	public void requestSpawn() {
+		spawnRequests.incrementAndGet();
+	}
+
+	/**
+	 * Take all pending spawn requests.
+	 * @return number of requested bursts
+	 */
+	public int drainSpawnRequests() {
+		return spawnRequests.getAndSet(0);
+	}
+
+	/**
+	 * Move free bubble to visible ones.
+	 * @return spawned bubble or null if pool is exhausted
+	 */
+	public BubbleModel spawn() {
+		if (freeCount == 0) {
+			return null;
+		}
+		BubbleModel bubble = free[--freeCount];
+		free[freeCount] = null;
+		live[liveCount++] = bubble;
+		return bubble;
+	}
+
+	/**
+	 * Return visible bubble to pool. Last visible bubble takes its place.
+	 * @param index index of visible bubble
+	 */
+	public void recycle(int index) {
+		free[freeCount++] = live[index];
+		live[index] = live[--liveCount];
+		live[liveCount] = null;
+	}
+
+	/**
+	 * Get maximum number of bubbles.
+	 */
+	public int getCapacity() {
+		return live.length;
+	}
+
+	/**
+	 * Get number of visible bubbles.
+	 */
+	public int size() {
+		return liveCount;
+	}
+
+	/**
+	 * Get visible bubble.
+	 * @param index index in range [0..size())
+	 */
+	public BubbleModel get(int index) {
+		return live[index];
+	}
+}
@@ -95,5 +95,25 @@ final class Constants {
      */
     public static final int DEFAULT_BUBBLES_PER_LAYER_MAX = 36;
 
+    /**
+     * Maximum number of bubbles per layer when bubbles are drawn as point sprites.
+     */
+    public static final int POINT_BUBBLES_PER_LAYER_MAX = 512;
+
+	/**
+	 * Default frame rate cap, 0 means display's refresh rate.
+	 */
+	public static final int DEFAULT_MAX_FPS = 0;
+
+	/**
+	 * Minimum fraction of native resolution used for rendering.
+	 */
+	public static final float MIN_RENDER_SCALE = 0.25f;
+
+	/**
+	 * Maximum fraction of native resolution used for rendering (native resolution itself).
+	 */
+	public static final float MAX_RENDER_SCALE = 1f;
+
 	private Constants() {}
 }
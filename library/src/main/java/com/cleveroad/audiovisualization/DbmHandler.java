@@ -3,34 +3,83 @@ package com.cleveroad.audiovisualization;
 import android.content.Context;
 import android.media.MediaPlayer;
 import android.media.audiofx.Visualizer;
+import android.os.Handler;
+import android.os.Looper;
 import android.speech.SpeechRecognizer;
 import android.support.annotation.CallSuper;
 import android.support.annotation.NonNull;
 
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Abstract class for converting your data to dBm values.
  * When you're have new portion of data, call {@link #onDataReceived(Object)} method.
+ * One handler can feed several visualizations, for example mini player and full screen player: data is converted
+ * once for the largest layers count and every visualization takes as many layers as it has. Handler is released
+ * when last visualization linked to it is released or linked to other handler.
  */
 public abstract class DbmHandler<TData> {
 
     private static final long UPDATE_INTERVAL = 16;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
     private int layersCount;
-    private InnerAudioVisualization audioVisualization;
     private float[] dBmArray;
     private float[] ampsArray;
     private float[] emptyArray;
+    private int resumedCount;
     private boolean released;
     private Timer timer;
+    private Handler handler;
+    private int qualityTier = GLAudioVisualizationView.QUALITY_TIER_FULL;
 
+    /**
+     * Subscribe visualization to converted data. Does nothing if it's already subscribed.
+     * @param audioVisualization visualization
+     * @param layersCount layers count of visualization
+     */
     void setUp(@NonNull InnerAudioVisualization audioVisualization, int layersCount) {
-        this.audioVisualization = audioVisualization;
-        this.layersCount = layersCount;
-        this.dBmArray = new float[layersCount];
-        this.ampsArray = new float[layersCount];
-        this.emptyArray = new float[layersCount];
+        if (findSubscriber(audioVisualization) != null) {
+            return;
+        }
+        subscribers.add(new Subscriber(audioVisualization));
+        synchronized (this) {
+            if (layersCount > this.layersCount) {
+                this.layersCount = layersCount;
+                this.dBmArray = new float[layersCount];
+                this.ampsArray = new float[layersCount];
+                this.emptyArray = new float[layersCount];
+            }
+        }
+    }
+
+    /**
+     * Unsubscribe visualization. Paused state and quality tier of visualization no longer count.
+     * @param audioVisualization visualization
+     * @return true if no visualizations are left and handler can be released
+     */
+    boolean tearDown(@NonNull InnerAudioVisualization audioVisualization) {
+        Subscriber subscriber = findSubscriber(audioVisualization);
+        if (subscriber != null) {
+            subscribers.remove(subscriber);
+            audioVisualization.calmDownListener(null);
+            if (subscriber.resumed && --resumedCount == 0) {
+                onPause();
+            }
+            updateQualityTier();
+        }
+        return subscribers.isEmpty();
+    }
+
+    private Subscriber findSubscriber(InnerAudioVisualization audioVisualization) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.visualization == audioVisualization) {
+                return subscriber;
+            }
+        }
+        return null;
     }
 
     /**
@@ -38,10 +87,14 @@ public abstract class DbmHandler<TData> {
      * @param data any data
      */
     public final void onDataReceived(TData data) {
-        if (released)
-            return;
-        onDataReceivedImpl(data, layersCount, dBmArray, ampsArray);
-        audioVisualization.onDataReceived(dBmArray, ampsArray);
+        synchronized (this) {
+            if (released || subscribers.isEmpty())
+                return;
+            onDataReceivedImpl(data, layersCount, dBmArray, ampsArray);
+            for (Subscriber subscriber : subscribers) {
+                subscriber.visualization.onDataReceived(dBmArray, ampsArray);
+            }
+        }
         startRendering();
     }
 
@@ -50,7 +103,10 @@ public abstract class DbmHandler<TData> {
      */
     protected final void startRendering() {
         cancelTimer();
-        audioVisualization.startRendering();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.calmedDown = false;
+            subscriber.visualization.startRendering();
+        }
     }
 
     /**
@@ -58,7 +114,9 @@ public abstract class DbmHandler<TData> {
      */
     protected final void stopRendering() {
         cancelTimer();
-        audioVisualization.stopRendering();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.visualization.stopRendering();
+        }
     }
 
     /**
@@ -70,18 +128,31 @@ public abstract class DbmHandler<TData> {
             timer.scheduleAtFixedRate(new TimerTask() {
                 @Override
                 public void run() {
-                    if (audioVisualization != null) {
-                        audioVisualization.onDataReceived(emptyArray, emptyArray);
+                    synchronized (DbmHandler.this) {
+                        if (released)
+                            return;
+                        for (Subscriber subscriber : subscribers) {
+                            subscriber.visualization.onDataReceived(emptyArray, emptyArray);
+                        }
                     }
                 }
             }, UPDATE_INTERVAL, UPDATE_INTERVAL);
         }
-        audioVisualization.calmDownListener(new InnerAudioVisualization.CalmDownListener() {
-            @Override
-            public void onCalmedDown() {
-                stopRendering();
-            }
-        });
+        for (final Subscriber subscriber : subscribers) {
+            subscriber.visualization.calmDownListener(new InnerAudioVisualization.CalmDownListener() {
+                @Override
+                public void onCalmedDown() {
+                    subscriber.calmedDown = true;
+                    // keep posting empty values until waves of every visualization calm down
+                    for (Subscriber other : subscribers) {
+                        if (!other.calmedDown) {
+                            return;
+                        }
+                    }
+                    stopRendering();
+                }
+            });
+        }
     }
 
     /**
@@ -96,28 +167,109 @@ public abstract class DbmHandler<TData> {
     }
 
     /**
-     * Called after {@link AudioVisualization#onResume()} call.
+     * Called when visualization is resumed. {@link #onResume()} is called when first visualization is resumed.
+     */
+    void resume(@NonNull InnerAudioVisualization audioVisualization) {
+        Subscriber subscriber = findSubscriber(audioVisualization);
+        if (subscriber != null && !subscriber.resumed) {
+            subscriber.resumed = true;
+            if (resumedCount++ == 0) {
+                onResume();
+            }
+        }
+    }
+
+    /**
+     * Called when visualization is paused. {@link #onPause()} is called when last visualization is paused.
+     */
+    void pause(@NonNull InnerAudioVisualization audioVisualization) {
+        Subscriber subscriber = findSubscriber(audioVisualization);
+        if (subscriber != null && subscriber.resumed) {
+            subscriber.resumed = false;
+            if (--resumedCount == 0) {
+                onPause();
+            }
+        }
+    }
+
+    /**
+     * Deliver new quality tier of visualization. Handler follows visualization with the highest quality, since
+     * its own reductions affect all of them. Can be called from any thread.
+     */
+    void setQualityTier(@NonNull InnerAudioVisualization audioVisualization, int tier) {
+        Subscriber subscriber = findSubscriber(audioVisualization);
+        if (subscriber != null) {
+            subscriber.qualityTier = tier;
+            updateQualityTier();
+        }
+    }
+
+    private void updateQualityTier() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        int tier = Integer.MAX_VALUE;
+        for (Subscriber subscriber : subscribers) {
+            tier = Math.min(tier, subscriber.qualityTier);
+        }
+        setQualityTier(tier);
+    }
+
+    /**
+     * Deliver new quality tier on main thread. Can be called from any thread.
+     */
+    private void setQualityTier(final int tier) {
+        synchronized (this) {
+            if (handler == null) {
+                handler = new Handler(Looper.getMainLooper());
+            }
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!released && tier != qualityTier) {
+                    qualityTier = tier;
+                    onQualityTierChanged(tier);
+                }
+            }
+        });
+    }
+
+    /**
+     * Called on main thread when quality governor changed quality tier. Handlers can reduce their own work,
+     * for example capture less audio data.
+     * @param tier one of {@code QUALITY_TIER_*} constants of {@link GLAudioVisualizationView}
+     */
+    protected void onQualityTierChanged(int tier) {
+
+    }
+
+    /**
+     * Called after {@link AudioVisualization#onResume()} call of first resumed view linked to handler.
      */
     public void onResume() {
 
     }
 
     /**
-     * Called after {@link AudioVisualization#onPause()} call.
+     * Called after {@link AudioVisualization#onPause()} call of last resumed view linked to handler.
      */
     public void onPause() {
 
     }
 
     /**
-     * Called after {@link AudioVisualization#release()} ()} call.
+     * Called after {@link AudioVisualization#release()} ()} call of last view linked to handler.
      */
     @CallSuper
     public void release() {
-        released = true;
-        dBmArray = null;
-        ampsArray = null;
-        audioVisualization = null;
+        synchronized (this) {
+            released = true;
+            dBmArray = null;
+            ampsArray = null;
+        }
+        cancelTimer();
+        subscribers.clear();
     }
 
     /**
@@ -185,4 +337,18 @@ public abstract class DbmHandler<TData> {
         }
     }
 
+    /**
+     * Visualization fed by handler.
+     */
+    private static class Subscriber {
+
+        private final InnerAudioVisualization visualization;
+        private volatile boolean calmedDown;
+        private volatile int qualityTier = GLAudioVisualizationView.QUALITY_TIER_FULL;
+        private boolean resumed;
+
+        Subscriber(InnerAudioVisualization visualization) {
+            this.visualization = visualization;
+        }
+    }
 }
@@ -0,0 +1,121 @@
+package com.cleveroad.audiovisualization;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single consumer of frame times for all adaptive reductions. When frames stay over budget, only the first control
+ * that can still be reduced takes one step, then frames are not judged for a settle period, so the step has time
+ * to take effect before the next one. Reductions are undone in reverse order after a while without overload.
+ * Driven by frame timestamps only, so it can be checked without a device.
+ */
+class FrameLoadController {
+
+	/**
+	 * Time after a step during which frames are not judged.
+	 */
+	static final long SETTLE_INTERVAL_NANOS = 1000000000L;
+
+	/**
+	 * Time without overload before last reduction is undone.
+	 */
+	static final long RECOVERY_INTERVAL_NANOS = 30000000000L;
+
+	/**
+	 * Control that can be reduced and restored step by step.
+	 */
+	interface Control {
+
+		/**
+		 * Apply one more reduction. Called on GL thread.
+		 * @return true if something was reduced, false if control can't be reduced any further
+		 */
+		boolean reduce();
+
+		/**
+		 * Undo one reduction. Called on GL thread.
+		 * @return true if something was restored, false if there's nothing to restore
+		 */
+		boolean restore();
+	}
+
+	private final FrameTimeMonitor frameTimeMonitor;
+	private final Control[] controls;
+	private final List<Control> reduced = new ArrayList<>();
+	private boolean started;
+	private long lastChangeTime;
+
+	/**
+	 * @param maxFps frame rate cap or 0 if there's no cap
+	 * @param controls controls in order they are reduced
+	 */
+	public FrameLoadController(int maxFps, @NonNull Control... controls) {
+		this.frameTimeMonitor = new FrameTimeMonitor(maxFps);
+		this.controls = controls;
+	}
+
+	/**
+	 * Update frame budget.
+	 * @param maxFps frame rate cap or 0 if there's no cap
+	 */
+	public void setMaxFps(int maxFps) {
+		frameTimeMonitor.setMaxFps(maxFps);
+		frameTimeMonitor.reset();
+	}
+
+	/**
+	 * Start settle period from next frame, for example after surface was resized.
+	 */
+	public void reset() {
+		started = false;
+		frameTimeMonitor.reset();
+	}
+
+	/**
+	 * Register new frame. Called on GL thread.
+	 * @param frameTimeNanos time of frame in nanoseconds from monotonic clock
+	 * @return true if a control was reduced or restored
+	 */
+	public boolean onFrame(long frameTimeNanos) {
+		if (!started) {
+			started = true;
+			lastChangeTime = frameTimeNanos;
+		}
+		if (frameTimeNanos - lastChangeTime < SETTLE_INTERVAL_NANOS) {
+			// previous step hasn't taken effect yet, frames until then say nothing about it
+			frameTimeMonitor.reset();
+			return false;
+		}
+		if (frameTimeMonitor.onFrame(frameTimeNanos)) {
+			lastChangeTime = frameTimeNanos;
+			return reduce();
+		}
+		if (!reduced.isEmpty() && frameTimeNanos - lastChangeTime >= RECOVERY_INTERVAL_NANOS) {
+			lastChangeTime = frameTimeNanos;
+			return restore();
+		}
+		return false;
+	}
+
+	private boolean reduce() {
+		for (Control control : controls) {
+			if (control.reduce()) {
+				reduced.add(control);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean restore() {
+		while (!reduced.isEmpty()) {
+			// control may have been restored by other means, for example signals of quality governor
+			if (reduced.remove(reduced.size() - 1).restore()) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,223 @@
+package com.cleveroad.audiovisualization;
+
+import android.annotation.TargetApi;
+import android.opengl.GLSurfaceView;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+/**
+ * Requests frames of {@link GLSurfaceView} or other {@link Target} on display's vsync and provides vsync timestamp for animation, so motion
+ * doesn't depend on how GL thread was scheduled. Works with any refresh rate (60, 90, 120 Hz), frame rate can be
+ * capped. In {@link GLAudioVisualizationView#RENDER_MODE_ON_DEMAND} mode frames are requested only when new data
+ * arrived or scene is still animating.
+ * On devices without {@link Choreographer} surface view is simply switched to continuous rendering without cap.
+ * Everything except {@link #setAnimating(boolean)} can be called from any thread.
+ */
+class FrameScheduler {
+
+	private final Target target;
+	private final Handler handler;
+	private final VsyncCallback vsyncCallback;
+	private final boolean onDemand;
+	private volatile long minFrameIntervalNanos;
+	private volatile boolean running;
+	private volatile long frameTimeNanos;
+	private volatile boolean dirty;
+	private volatile boolean animating = true;
+
+	private final Runnable startRunnable = new Runnable() {
+		@Override
+		public void run() {
+			vsyncCallback.start();
+		}
+	};
+
+	private final Runnable stopRunnable = new Runnable() {
+		@Override
+		public void run() {
+			vsyncCallback.stop();
+		}
+	};
+
+	/**
+	 * Create new scheduler.
+	 * @param glSurfaceView surface view to request frames from
+	 * @param renderMode one of {@link GLAudioVisualizationView#RENDER_MODE_CONTINUOUS} or
+	 * {@link GLAudioVisualizationView#RENDER_MODE_ON_DEMAND}
+	 * @param maxFps maximum number of frames per second or 0 for display's refresh rate
+	 */
+	public FrameScheduler(@NonNull final GLSurfaceView glSurfaceView, int renderMode, int maxFps) {
+		this(new Target() {
+			@Override
+			public void requestRender() {
+				glSurfaceView.requestRender();
+			}
+
+			@Override
+			public void setContinuous(boolean continuous) {
+				int renderMode = continuous ? GLSurfaceView.RENDERMODE_CONTINUOUSLY : GLSurfaceView.RENDERMODE_WHEN_DIRTY;
+				if (glSurfaceView.getRenderMode() != renderMode) {
+					glSurfaceView.setRenderMode(renderMode);
+				}
+			}
+		}, renderMode, maxFps);
+	}
+
+	/**
+	 * Create new scheduler.
+	 * @param target target to request frames from
+	 * @param renderMode one of {@link GLAudioVisualizationView#RENDER_MODE_CONTINUOUS} or
+	 * {@link GLAudioVisualizationView#RENDER_MODE_ON_DEMAND}
+	 * @param maxFps maximum number of frames per second or 0 for display's refresh rate
+	 */
+	public FrameScheduler(@NonNull Target target, int renderMode, int maxFps) {
+		this.target = target;
+		this.onDemand = renderMode == GLAudioVisualizationView.RENDER_MODE_ON_DEMAND;
+		setMaxFps(maxFps);
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			handler = new Handler(Looper.getMainLooper());
+			vsyncCallback = new VsyncCallback();
+		} else {
+			handler = null;
+			vsyncCallback = null;
+		}
+	}
+
+	/**
+	 * Start requesting frames.
+	 */
+	public void start() {
+		if (vsyncCallback == null) {
+			target.setContinuous(true);
+			return;
+		}
+		target.setContinuous(false);
+		if (running) {
+			return;
+		}
+		frameTimeNanos = System.nanoTime();
+		running = true;
+		handler.removeCallbacks(stopRunnable);
+		handler.post(startRunnable);
+	}
+
+	/**
+	 * Stop requesting frames.
+	 */
+	public void stop() {
+		target.setContinuous(false);
+		if (vsyncCallback == null || !running) {
+			return;
+		}
+		running = false;
+		handler.removeCallbacks(startRunnable);
+		handler.post(stopRunnable);
+	}
+
+	/**
+	 * Change frame rate cap.
+	 * @param maxFps maximum number of frames per second or 0 for display's refresh rate
+	 */
+	public void setMaxFps(int maxFps) {
+		minFrameIntervalNanos = maxFps > 0 ? 1000000000L / maxFps : 0;
+	}
+
+	/**
+	 * Mark scene as changed, for example when new data arrived. Next vsync will request a frame.
+	 */
+	public void invalidate() {
+		dirty = true;
+	}
+
+	/**
+	 * Report whether drawn scene is still animating. Called on GL thread after every frame.
+	 * @param animating true if scene needs more frames without new data
+	 */
+	public void setAnimating(boolean animating) {
+		this.animating = animating;
+	}
+
+	/**
+	 * Get time of frame being drawn. Can be called from any thread.
+	 * @return vsync timestamp of latest frame or current time if frames are not scheduled, in
+	 * {@link System#nanoTime()} time base
+	 */
+	public long getFrameTimeNanos() {
+		return running ? frameTimeNanos : System.nanoTime();
+	}
+
+	/**
+	 * Choreographer callback. Touched only on main thread.
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private class VsyncCallback implements Choreographer.FrameCallback {
+
+		private boolean posted;
+		private long lastVsyncNanos;
+		private long lastRequestNanos;
+
+		void start() {
+			if (!posted) {
+				posted = true;
+				lastVsyncNanos = 0;
+				lastRequestNanos = 0;
+				Choreographer.getInstance().postFrameCallback(this);
+			}
+		}
+
+		void stop() {
+			if (posted) {
+				posted = false;
+				Choreographer.getInstance().removeFrameCallback(this);
+			}
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			if (!running) {
+				posted = false;
+				return;
+			}
+			if (onDemand && !dirty && !animating) {
+				// nothing to draw, sleep until new data; dirty is checked again after running is cleared,
+				// so invalidate() followed by start() from another thread is never lost
+				running = false;
+				if (!dirty) {
+					posted = false;
+					return;
+				}
+				running = true;
+			}
+			long vsyncPeriod = lastVsyncNanos == 0 ? 0 : frameTimeNanos - lastVsyncNanos;
+			lastVsyncNanos = frameTimeNanos;
+			Choreographer.getInstance().postFrameCallback(this);
+			// skip vsyncs arriving earlier than frame rate cap allows, half of vsync period is tolerance for jitter
+			if (lastRequestNanos != 0 && frameTimeNanos - lastRequestNanos < minFrameIntervalNanos - vsyncPeriod / 2) {
+				return;
+			}
+			dirty = false;
+			lastRequestNanos = frameTimeNanos;
+			FrameScheduler.this.frameTimeNanos = frameTimeNanos;
+			target.requestRender();
+		}
+	}
+
+	/**
+	 * Something frames are drawn on.
+	 */
+	interface Target {
+
+		/**
+		 * Draw one frame on render thread.
+		 */
+		void requestRender();
+
+		/**
+		 * Switch between drawing frames on request only and drawing them continuously without cap.
+		 */
+		void setContinuous(boolean continuous);
+	}
+}
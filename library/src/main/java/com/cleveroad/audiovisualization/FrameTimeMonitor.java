@@ -0,0 +1,88 @@
+package com.cleveroad.audiovisualization;
+
+/**
+ * Tracks smoothed interval between frames and reports when it stays over frame budget.
+ */
+class FrameTimeMonitor {
+
+	/**
+	 * Weight of newest interval in exponential moving average.
+	 */
+	private static final float SMOOTHING = 0.1f;
+
+	/**
+	 * Average interval must exceed budget by this factor to count as slow frame.
+	 */
+	private static final float TOLERANCE = 1.2f;
+
+	/**
+	 * Number of consecutive slow frames treated as sustained overload.
+	 */
+	static final int SUSTAINED_FRAMES = 60;
+
+	private float budget;
+	private long lastFrameTime;
+	private boolean hasLastFrame;
+	private float averageInterval;
+	private int slowFrames;
+
+	/**
+	 * @param maxFps frame rate cap or 0 if there's no cap
+	 */
+	public FrameTimeMonitor(int maxFps) {
+		setMaxFps(maxFps);
+	}
+
+	/**
+	 * Update frame budget.
+	 * @param maxFps frame rate cap or 0 if there's no cap
+	 */
+	public void setMaxFps(int maxFps) {
+		this.budget = maxFps > 0 ? 1000f / maxFps : SceneModel.STEP;
+	}
+
+	/**
+	 * Register new frame.
+	 * @param frameTimeNanos time of frame in nanoseconds from monotonic clock
+	 * @return true if frames were over budget long enough, counting starts over after that
+	 */
+	public boolean onFrame(long frameTimeNanos) {
+		float interval = (frameTimeNanos - lastFrameTime) / 1000000f;
+		boolean hadLastFrame = hasLastFrame;
+		lastFrameTime = frameTimeNanos;
+		hasLastFrame = true;
+		if (!hadLastFrame || interval > SceneModel.MAX_FRAME_TIME) {
+			// rendering was paused or waiting for data, it says nothing about performance
+			averageInterval = budget;
+			slowFrames = 0;
+			return false;
+		}
+		averageInterval += (interval - averageInterval) * SMOOTHING;
+		if (averageInterval <= budget * TOLERANCE) {
+			slowFrames = 0;
+			return false;
+		}
+		if (++slowFrames < SUSTAINED_FRAMES) {
+			return false;
+		}
+		averageInterval = budget;
+		slowFrames = 0;
+		return true;
+	}
+
+	/**
+	 * Forget collected statistics.
+	 */
+	public void reset() {
+		hasLastFrame = false;
+		averageInterval = budget;
+		slowFrames = 0;
+	}
+
+	/**
+	 * Get smoothed interval between frames in milliseconds.
+	 */
+	public float getAverageInterval() {
+		return averageInterval;
+	}
+}
@@ -0,0 +1,119 @@
+package com.cleveroad.audiovisualization;
+
+import java.nio.Buffer;
+
+/**
+ * Thin layer over OpenGL ES calls used by renderers. Production code uses {@link AndroidGLApi},
+ * unit tests use a recording implementation that counts calls on JVM. Constants are the same as in {@link android.opengl.GLES20}
+ * and {@link android.opengl.GLES30}.
+ */
+interface GLApi {
+
+	// shaders and programs
+
+	int glCreateShader(int type);
+
+	void glShaderSource(int shader, String string);
+
+	void glCompileShader(int shader);
+
+	void glGetShaderiv(int shader, int pname, int[] params, int offset);
+
+	String glGetShaderInfoLog(int shader);
+
+	int glCreateProgram();
+
+	void glAttachShader(int program, int shader);
+
+	void glDetachShader(int program, int shader);
+
+	void glDeleteShader(int shader);
+
+	void glLinkProgram(int program);
+
+	void glGetProgramiv(int program, int pname, int[] params, int offset);
+
+	String glGetProgramInfoLog(int program);
+
+	void glDeleteProgram(int program);
+
+	void glUseProgram(int program);
+
+	int glGetAttribLocation(int program, String name);
+
+	int glGetUniformLocation(int program, String name);
+
+	void glUniform1i(int location, int x);
+
+	void glUniform1f(int location, float x);
+
+	void glUniform4fv(int location, int count, float[] v, int offset);
+
+	// state
+
+	String glGetString(int name);
+
+	void glGetFloatv(int pname, float[] params, int offset);
+
+	void glGetIntegerv(int pname, int[] params, int offset);
+
+	void glViewport(int x, int y, int width, int height);
+
+	void glClearColor(float red, float green, float blue, float alpha);
+
+	void glClear(int mask);
+
+	void glEnable(int cap);
+
+	void glDisable(int cap);
+
+	void glBlendFunc(int sfactor, int dfactor);
+
+	void glStencilFunc(int func, int ref, int mask);
+
+	void glStencilOp(int fail, int zfail, int zpass);
+
+	// buffers and attributes
+
+	void glGenBuffers(int n, int[] buffers, int offset);
+
+	void glDeleteBuffers(int n, int[] buffers, int offset);
+
+	void glBindBuffer(int target, int buffer);
+
+	void glBufferData(int target, int size, Buffer data, int usage);
+
+	void glBufferSubData(int target, int offset, int size, Buffer data);
+
+	void glEnableVertexAttribArray(int index);
+
+	void glDisableVertexAttribArray(int index);
+
+	void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer ptr);
+
+	void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset);
+
+	// drawing
+
+	void glDrawArrays(int mode, int first, int count);
+
+	void glDrawElements(int mode, int count, int type, Buffer indices);
+
+	// OpenGL ES 3.0
+
+	int glGetUniformBlockIndex(int program, String uniformBlockName);
+
+	void glUniformBlockBinding(int program, int uniformBlockIndex, int uniformBlockBinding);
+
+	void glBindBufferBase(int target, int index, int buffer);
+
+	void glGenVertexArrays(int n, int[] arrays, int offset);
+
+	void glDeleteVertexArrays(int n, int[] arrays, int offset);
+
+	void glBindVertexArray(int array);
+
+	void glVertexAttribDivisor(int index, int divisor);
+
+	void glDrawArraysInstanced(int mode, int first, int count, int instanceCount);
+}
@@ -18,9 +18,68 @@ import android.util.AttributeSet;
  */
 public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisualization, InnerAudioVisualization {
 
+    /**
+     * Draw every bubble as a triangle fan.
+     */
+    public static final int BUBBLES_RENDER_MODE_CIRCLES = 0;
+
+    /**
+     * Draw all bubbles of a layer as point sprites in a single call. Allows much more bubbles per layer
+     * (up to {@value Constants#POINT_BUBBLES_PER_LAYER_MAX}).
+     */
+    public static final int BUBBLES_RENDER_MODE_POINTS = 1;
+
+    /**
+     * Render every vsync (limited by frame rate cap) while visualization is active.
+     */
+    public static final int RENDER_MODE_CONTINUOUS = 0;
+
+    /**
+     * Render only when new data arrived or waves and bubbles are still moving, sleep otherwise.
+     */
+    public static final int RENDER_MODE_ON_DEMAND = 1;
+
+    /**
+     * Quality tier: everything as configured.
+     */
+    public static final int QUALITY_TIER_FULL = 0;
+
+    /**
+     * Quality tier: frame rate is capped at 30 fps.
+     */
+    public static final int QUALITY_TIER_LOW_FPS = 1;
+
+    /**
+     * Quality tier: previous reductions plus coarser tessellation of waves and bubbles.
+     */
+    public static final int QUALITY_TIER_LOW_DETAIL = 2;
+
+    /**
+     * Quality tier: previous reductions plus half of bubbles.
+     */
+    public static final int QUALITY_TIER_FEW_BUBBLES = 3;
+
+    /**
+     * Quality tier: previous reductions plus smaller audio capture size.
+     */
+    public static final int QUALITY_TIER_SMALL_CAPTURE = 4;
+
+    /**
+     * Surface format: 8 bits per channel with alpha.
+     */
+    public static final int SURFACE_FORMAT_RGBA8888 = 0;
+
+    /**
+     * Surface format: 16 bits per pixel without alpha. Halves framebuffer memory and bandwidth.
+     */
+    public static final int SURFACE_FORMAT_RGB565 = 1;
+
     private static final int EGL_VERSION = 2;
+    private static final int STENCIL_SIZE = 8;
     private final GLRenderer renderer;
-    private DbmHandler<?> dbmHandler;
+    private FrameScheduler frameScheduler;
+    private RenderScaler renderScaler;
+    private volatile DbmHandler<?> dbmHandler;
     private final Configuration configuration;
     private CalmDownListener innerCalmDownListener;
 
@@ -40,7 +99,23 @@ public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisu
 
     private void init() {
         setEGLContextClientVersion(EGL_VERSION);
+        setEGLContextFactory(new GLContextFactory());
+        setPreserveEGLContextOnPause(true);
+        setEGLConfigChooser(configuration.createConfigChooser());
         setRenderer(renderer);
+        frameScheduler = new FrameScheduler(this, configuration.renderMode, configuration.maxFps);
+        renderer.frameScheduler(frameScheduler);
+        renderScaler = new RenderScaler(this, configuration.renderScale, configuration.adaptiveRenderScale);
+        renderer.renderScaler(renderScaler);
+        renderer.qualityListener(new QualityGovernor.Listener() {
+            @Override
+            public void onQualityTierChanged(int tier) {
+                DbmHandler<?> dbmHandler = GLAudioVisualizationView.this.dbmHandler;
+                if (dbmHandler != null) {
+                    dbmHandler.setQualityTier(GLAudioVisualizationView.this, tier);
+                }
+            }
+        });
         renderer.calmDownListener(new CalmDownListener() {
             @Override
             public void onCalmedDown() {
@@ -56,47 +131,103 @@ public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisu
     public void onResume() {
         super.onResume();
         if (dbmHandler != null) {
-            dbmHandler.onResume();
+            dbmHandler.resume(this);
         }
     }
 
     @Override
     public void onPause() {
         if (dbmHandler != null) {
-            dbmHandler.onPause();
+            dbmHandler.pause(this);
         }
+        frameScheduler.stop();
         super.onPause();
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        renderScaler.onSizeChanged();
+    }
+
     @Override
     public <T> void linkTo(@NonNull DbmHandler<T> dbmHandler) {
-        if (this.dbmHandler != null) {
+        if (this.dbmHandler != null && this.dbmHandler != dbmHandler && this.dbmHandler.tearDown(this)) {
             this.dbmHandler.release();
         }
         this.dbmHandler = dbmHandler;
         this.dbmHandler.setUp(this, configuration.layersCount);
+        if (renderer.getQualityTier() != QUALITY_TIER_FULL) {
+            this.dbmHandler.setQualityTier(this, renderer.getQualityTier());
+        }
+    }
+
+    /**
+     * Render at a fraction of native resolution, image is upscaled to view bounds. Can be called at any time.
+     * With adaptive render scale it's the highest scale used.
+     *
+     * @param scale fraction of native resolution, from {@value Constants#MIN_RENDER_SCALE} to 1
+     */
+    public void setRenderScale(float scale) {
+        renderScaler.setScale(scale);
+    }
+
+    /**
+     * Get current fraction of native resolution used for rendering.
+     */
+    public float getRenderScale() {
+        return renderScaler.getScale();
+    }
+
+    /**
+     * Get current quality tier chosen by quality governor.
+     *
+     * @return one of {@code QUALITY_TIER_*} constants, {@link #QUALITY_TIER_FULL} if quality governor is disabled
+     */
+    public int getQualityTier() {
+        return renderer.getQualityTier();
+    }
+
+    /**
+     * Get number of OpenGL objects created by visualization and not deleted yet. Useful for checking that
+     * nothing leaks in long sessions.
+     */
+    public int getGLObjectsCount() {
+        return renderer.getGLObjectsCount();
+    }
+
+    /**
+     * Get number of native bytes allocated for vertex and index data. All shapes share one buffer, so it's
+     * allocated once per surface and only grows if scene needs more.
+     */
+    public int getNativeMemoryUsage() {
+        return renderer.getNativeMemoryUsage();
     }
 
     @Override
     public void release() {
         if (dbmHandler != null) {
-            dbmHandler.release();
+            if (dbmHandler.tearDown(this)) {
+                dbmHandler.release();
+            }
             dbmHandler = null;
         }
+        queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                renderer.release();
+            }
+        });
     }
 
     @Override
     public void startRendering() {
-        if (getRenderMode() != RENDERMODE_CONTINUOUSLY) {
-            setRenderMode(RENDERMODE_CONTINUOUSLY);
-        }
+        frameScheduler.start();
     }
 
     @Override
     public void stopRendering() {
-        if (getRenderMode() != RENDERMODE_WHEN_DIRTY) {
-            setRenderMode(RENDERMODE_WHEN_DIRTY);
-        }
+        frameScheduler.stop();
     }
 
     @Override
@@ -107,6 +238,7 @@ public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisu
     @Override
     public void onDataReceived(float[] dBmArray, float[] ampsArray) {
         renderer.onDataReceived(dBmArray, ampsArray);
+        frameScheduler.invalidate();
     }
 
     /**
@@ -121,6 +253,19 @@ public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisu
         float waveHeight;
         float footerHeight;
         boolean randomizeBubbleSize;
+        int bubblesRenderMode;
+        boolean hasRandomSeed;
+        long randomSeed;
+        int renderMode;
+        int maxFps;
+        boolean adaptiveLod;
+        int surfaceFormat;
+        int multisampling;
+        boolean overdrawReduction;
+        boolean compactVertices;
+        float renderScale;
+        boolean adaptiveRenderScale;
+        QualitySignalSource qualitySignalSource;
         float[] backgroundColor;
         float[][] layerColors;
 
@@ -140,8 +285,22 @@ public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisu
                 randomizeBubbleSize = array.getBoolean(R.styleable.GLAudioVisualizationView_av_bubblesRandomizeSizes, false);
                 footerHeight = array.getDimensionPixelSize(R.styleable.GLAudioVisualizationView_av_wavesFooterHeight, (int) Constants.DEFAULT_FOOTER_HEIGHT);
                 footerHeight = Utils.between(footerHeight, Constants.MIN_FOOTER_HEIGHT, Constants.MAX_FOOTER_HEIGHT);
+                bubblesRenderMode = array.getInt(R.styleable.GLAudioVisualizationView_av_bubblesRenderMode, BUBBLES_RENDER_MODE_CIRCLES);
                 bubblesPerLayer = array.getInt(R.styleable.GLAudioVisualizationView_av_bubblesPerLayer, Constants.DEFAULT_BUBBLES_PER_LAYER);
-                bubblesPerLayer = Utils.between(bubblesPerLayer, Constants.DEFAULT_BUBBLES_PER_LAYER_MIN, Constants.DEFAULT_BUBBLES_PER_LAYER_MAX);
+                bubblesPerLayer = Utils.between(bubblesPerLayer, Constants.DEFAULT_BUBBLES_PER_LAYER_MIN, maxBubblesPerLayer(bubblesRenderMode));
+                renderMode = array.getInt(R.styleable.GLAudioVisualizationView_av_renderMode, RENDER_MODE_CONTINUOUS);
+                maxFps = Math.max(array.getInt(R.styleable.GLAudioVisualizationView_av_maxFps, Constants.DEFAULT_MAX_FPS), 0);
+                adaptiveLod = array.getBoolean(R.styleable.GLAudioVisualizationView_av_adaptiveLod, false);
+                surfaceFormat = array.getInt(R.styleable.GLAudioVisualizationView_av_surfaceFormat, SURFACE_FORMAT_RGBA8888);
+                multisampling = Math.max(array.getInt(R.styleable.GLAudioVisualizationView_av_multisampling, 0), 0);
+                overdrawReduction = array.getBoolean(R.styleable.GLAudioVisualizationView_av_overdrawReduction, false);
+                compactVertices = array.getBoolean(R.styleable.GLAudioVisualizationView_av_compactVertices, false);
+                renderScale = array.getFloat(R.styleable.GLAudioVisualizationView_av_renderScale, Constants.MAX_RENDER_SCALE);
+                renderScale = Utils.between(renderScale, Constants.MIN_RENDER_SCALE, Constants.MAX_RENDER_SCALE);
+                adaptiveRenderScale = array.getBoolean(R.styleable.GLAudioVisualizationView_av_adaptiveRenderScale, false);
+                if (array.getBoolean(R.styleable.GLAudioVisualizationView_av_qualityGovernor, false) && !isInEditMode) {
+                    qualitySignalSource = new PowerQualitySignalSource(context);
+                }
                 bgColor = array.getColor(R.styleable.GLAudioVisualizationView_av_backgroundColor, Color.TRANSPARENT);
                 if (bgColor == Color.TRANSPARENT) {
                     bgColor = ContextCompat.getColor(context, R.color.av_color_bg);
@@ -172,7 +331,13 @@ public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisu
             bubbleSize /= context.getResources().getDisplayMetrics().widthPixels;
         }
 
-        private Configuration(@NonNull Builder builder) {
+        /**
+         * Create empty configuration, every field must be set by caller.
+         */
+        Configuration() {
+        }
+
+        Configuration(@NonNull Builder builder) {
             this.waveHeight = builder.waveHeight;
             waveHeight = Utils.between(waveHeight, Constants.MIN_WAVE_HEIGHT, Constants.MAX_WAVE_HEIGHT);
             this.wavesCount = builder.wavesCount;
@@ -186,13 +351,40 @@ public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisu
             this.randomizeBubbleSize = builder.randomizeBubbleSize;
             this.backgroundColor = builder.backgroundColor();
             this.layersCount = builder.layersCount;
+            this.bubblesRenderMode = builder.bubblesRenderMode;
+            this.hasRandomSeed = builder.hasRandomSeed;
+            this.randomSeed = builder.randomSeed;
+            this.renderMode = builder.renderMode;
+            this.maxFps = Math.max(builder.maxFps, 0);
+            this.adaptiveLod = builder.adaptiveLod;
+            this.surfaceFormat = builder.surfaceFormat;
+            this.multisampling = Math.max(builder.multisampling, 0);
+            this.overdrawReduction = builder.overdrawReduction;
+            this.compactVertices = builder.compactVertices;
+            this.renderScale = Utils.between(builder.renderScale, Constants.MIN_RENDER_SCALE, Constants.MAX_RENDER_SCALE);
+            this.adaptiveRenderScale = builder.adaptiveRenderScale;
+            if (builder.qualitySignalSource != null) {
+                this.qualitySignalSource = builder.qualitySignalSource;
+            } else if (builder.qualityGovernor) {
+                this.qualitySignalSource = new PowerQualitySignalSource(builder.context);
+            }
             this.bubblesPerLayer = builder.bubblesPerLayer;
-            Utils.between(bubblesPerLayer, Constants.DEFAULT_BUBBLES_PER_LAYER_MIN, Constants.DEFAULT_BUBBLES_PER_LAYER_MAX);
+            bubblesPerLayer = Utils.between(bubblesPerLayer, Constants.DEFAULT_BUBBLES_PER_LAYER_MIN, maxBubblesPerLayer(bubblesRenderMode));
             layersCount = Utils.between(layersCount, Constants.MIN_LAYERS_COUNT, Constants.MAX_LAYERS_COUNT);
             if (layerColors.length < layersCount) {
                 throw new IllegalArgumentException("You specified more layers than colors.");
             }
         }
+
+        GLConfigChooser createConfigChooser() {
+            return new GLConfigChooser(surfaceFormat, overdrawReduction ? STENCIL_SIZE : 0, multisampling);
+        }
+
+        private static int maxBubblesPerLayer(int bubblesRenderMode) {
+            return bubblesRenderMode == BUBBLES_RENDER_MODE_POINTS
+                    ? Constants.POINT_BUBBLES_PER_LAYER_MAX
+                    : Constants.DEFAULT_BUBBLES_PER_LAYER_MAX;
+        }
     }
 
     public static class ColorsBuilder<T extends ColorsBuilder> {
@@ -275,6 +467,20 @@ public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisu
         private float footerHeight;
         private boolean randomizeBubbleSize;
         private int bubblesPerLayer;
+        private int bubblesRenderMode;
+        private boolean hasRandomSeed;
+        private long randomSeed;
+        private int renderMode = RENDER_MODE_CONTINUOUS;
+        private int maxFps = Constants.DEFAULT_MAX_FPS;
+        private boolean adaptiveLod;
+        private int surfaceFormat = SURFACE_FORMAT_RGBA8888;
+        private int multisampling;
+        private boolean overdrawReduction;
+        private boolean compactVertices;
+        private float renderScale = Constants.MAX_RENDER_SCALE;
+        private boolean adaptiveRenderScale;
+        private boolean qualityGovernor;
+        private QualitySignalSource qualitySignalSource;
 
         public Builder(@NonNull Context context) {
             super(context);
@@ -383,9 +589,169 @@ public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisu
             return this;
         }
 
+        /**
+         * Set how bubbles are drawn.
+         *
+         * @param bubblesRenderMode one of {@link #BUBBLES_RENDER_MODE_CIRCLES} or {@link #BUBBLES_RENDER_MODE_POINTS}
+         */
+        public Builder setBubblesRenderMode(int bubblesRenderMode) {
+            this.bubblesRenderMode = bubblesRenderMode;
+            return this;
+        }
+
+        /**
+         * Set seed of random generator, so the same data always produces the same animation.
+         * Useful for benchmarks and screenshot tests.
+         *
+         * @param randomSeed seed of random generator
+         */
+        public Builder setRandomSeed(long randomSeed) {
+            this.randomSeed = randomSeed;
+            this.hasRandomSeed = true;
+            return this;
+        }
+
+        /**
+         * Set when frames are rendered.
+         *
+         * @param renderMode one of {@link #RENDER_MODE_CONTINUOUS} or {@link #RENDER_MODE_ON_DEMAND}
+         */
+        public Builder setRenderMode(int renderMode) {
+            this.renderMode = renderMode;
+            return this;
+        }
+
+        /**
+         * Set frame rate cap, for example 30 for live wallpaper or 60 in app on 90/120 Hz displays.
+         *
+         * @param maxFps maximum number of frames per second or 0 for display's refresh rate
+         */
+        public Builder setMaxFps(int maxFps) {
+            this.maxFps = maxFps;
+            return this;
+        }
+
+        /**
+         * Allow lowering tessellation of waves and bubbles while frames don't fit into frame budget.
+         * Tessellation is always chosen from on-screen size of waves and bubbles.
+         *
+         * @param adaptiveLod true to lower tessellation when rendering is too slow
+         */
+        public Builder setAdaptiveLod(boolean adaptiveLod) {
+            this.adaptiveLod = adaptiveLod;
+            return this;
+        }
+
+        /**
+         * Set color format of surface. Surface never has depth buffer, stencil buffer is requested only with
+         * {@link #setOverdrawReduction(boolean)}.
+         *
+         * @param surfaceFormat one of {@link #SURFACE_FORMAT_RGBA8888} (default) or {@link #SURFACE_FORMAT_RGB565}
+         */
+        public Builder setSurfaceFormat(int surfaceFormat) {
+            this.surfaceFormat = surfaceFormat;
+            return this;
+        }
+
+        /**
+         * Enable multisample antialiasing if device supports it.
+         *
+         * @param samples number of samples per pixel, for example 4, or 0 to disable multisampling
+         */
+        public Builder setMultisampling(int samples) {
+            this.multisampling = samples;
+            return this;
+        }
+
+        /**
+         * Draw opaque waves front-to-back with stencil test, so every pixel is shaded once, and blend only bubbles.
+         * Costs a stencil buffer, saves fill rate where layers overlap.
+         *
+         * @param overdrawReduction true to enable overdraw reduction
+         */
+        public Builder setOverdrawReduction(boolean overdrawReduction) {
+            this.overdrawReduction = overdrawReduction;
+            return this;
+        }
+
+        /**
+         * Pass coordinates of waves and bubbles meshes as 16-bit fixed-point values instead of floats. Halves vertex
+         * data copied on every frame, precision is still far below a pixel. Used only by OpenGL ES 2.0 drawing,
+         * OpenGL ES 3.0 drawing builds shapes on GPU.
+         *
+         * @param compactVertices true to use compact vertices
+         */
+        public Builder setCompactVertices(boolean compactVertices) {
+            this.compactVertices = compactVertices;
+            return this;
+        }
+
+        /**
+         * Render at a fraction of native resolution, image is upscaled to view bounds. Smooth shapes of waves and
+         * bubbles hide resolution loss well, while fill rate drops with square of scale.
+         *
+         * @param renderScale fraction of native resolution, from {@value Constants#MIN_RENDER_SCALE} to 1
+         */
+        public Builder setRenderScale(float renderScale) {
+            this.renderScale = renderScale;
+            return this;
+        }
+
+        /**
+         * Lower render scale (down to {@value RenderScaler#MIN_ADAPTIVE_SCALE}) while frames don't fit into frame
+         * budget and raise it back when rendering keeps up.
+         *
+         * @param adaptiveRenderScale true to adjust render scale from frame times
+         * @see #setRenderScale(float)
+         */
+        public Builder setAdaptiveRenderScale(boolean adaptiveRenderScale) {
+            this.adaptiveRenderScale = adaptiveRenderScale;
+            return this;
+        }
+
+        /**
+         * Enable quality governor. It lowers frame rate, tessellation, number of bubbles and audio capture size
+         * step by step when frames don't fit into frame budget, device is hot or battery saver is on.
+         *
+         * @param qualityGovernor true to enable quality governor
+         */
+        public Builder setQualityGovernor(boolean qualityGovernor) {
+            this.qualityGovernor = qualityGovernor;
+            return this;
+        }
+
+        /**
+         * Enable quality governor with custom source of thermal and battery saver state.
+         *
+         * @param qualitySignalSource source of device state
+         * @see #setQualityGovernor(boolean)
+         */
+        public Builder setQualitySignalSource(@NonNull QualitySignalSource qualitySignalSource) {
+            this.qualitySignalSource = qualitySignalSource;
+            return this;
+        }
+
         public GLAudioVisualizationView build() {
             return new GLAudioVisualizationView(this);
         }
+
+        /**
+         * Build view drawn by render engine shared with other such views.
+         *
+         * @see SharedAudioVisualizationView
+         */
+        public SharedAudioVisualizationView buildShared() {
+            return new SharedAudioVisualizationView(context, new Configuration(this));
+        }
+
+        /**
+         * Build view based on texture view, drawn by render engine shared with other such views.
+         *
+         * @see TextureAudioVisualizationView
+         */
+        public TextureAudioVisualizationView buildTexture() {
+            return new TextureAudioVisualizationView(context, new Configuration(this));
+        }
     }
 
     /**
@@ -417,7 +783,7 @@ public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisu
         }
 
         /**
-         * Set OpenGL surface view.
+         * Set OpenGL surface view. Surface view is not changed, see {@link #configure(GLSurfaceView)}.
          *
          * @param glSurfaceView instance of OpenGL surface view
          */
@@ -427,45 +793,88 @@ public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisu
         }
 
         /**
-         * Create new Audio Visualization Renderer.
+         * Optionally configure surface view the way {@link GLAudioVisualizationView} is configured: EGL config is
+         * chosen from builder settings (surface format, multisampling, stencil buffer for overdraw reduction),
+         * OpenGL ES 3.0 context is used where it's available and the context is kept while paused. EGL config chooser
+         * and context factory set earlier are replaced. Must be called before
+         * {@link GLSurfaceView#setRenderer(Renderer)}, surface view throws {@link IllegalStateException} otherwise.
+         *
+         * @param glSurfaceView instance of OpenGL surface view
+         */
+        public RendererBuilder configure(@NonNull GLSurfaceView glSurfaceView) {
+            glSurfaceView.setEGLContextFactory(new GLContextFactory());
+            glSurfaceView.setEGLConfigChooser(new Configuration(builder).createConfigChooser());
+            glSurfaceView.setPreserveEGLContextOnPause(true);
+            return this;
+        }
+
+        /**
+         * Create new Audio Visualization Renderer. Surface view is not changed, so without
+         * {@link #configure(GLSurfaceView)} it must have OpenGL ES 2.0 context at least.
          *
-         * @return new Audio Visualization Renderer
+         * @return new Audio Visualization Renderer, it can be cast to {@link ExtendedAudioVisualizationRenderer}
          */
         public AudioVisualizationRenderer build() {
-            final GLRenderer renderer = new GLRenderer(builder.context, new Configuration(builder));
-            final InnerAudioVisualization audioVisualization = new InnerAudioVisualization() {
+            final Configuration configuration = new Configuration(builder);
+            final GLRenderer renderer = new GLRenderer(builder.context, configuration);
+            final FrameScheduler frameScheduler = new FrameScheduler(glSurfaceView, configuration.renderMode, configuration.maxFps);
+            renderer.frameScheduler(frameScheduler);
+            renderer.renderScaler(new RenderScaler(glSurfaceView, configuration.renderScale, configuration.adaptiveRenderScale));
+            final RendererVisualization audioVisualization = new RendererVisualization(renderer, frameScheduler);
+            renderer.qualityListener(new QualityGovernor.Listener() {
                 @Override
-                public void startRendering() {
-                    if (glSurfaceView.getRenderMode() != RENDERMODE_CONTINUOUSLY) {
-                        glSurfaceView.setRenderMode(RENDERMODE_CONTINUOUSLY);
-                    }
+                public void onQualityTierChanged(int tier) {
+                    handler.setQualityTier(audioVisualization, tier);
                 }
+            });
+            handler.setUp(audioVisualization, builder.layersCount);
+            return renderer;
+        }
 
-                @Override
-                public void stopRendering() {
-                    if (glSurfaceView.getRenderMode() != RENDERMODE_WHEN_DIRTY) {
-                        glSurfaceView.setRenderMode(RENDERMODE_WHEN_DIRTY);
+        /**
+         * Visualization fed by dBm handler and drawn by renderer of caller's surface view.
+         */
+        private static class RendererVisualization implements InnerAudioVisualization {
+
+            private final GLRenderer renderer;
+            private final FrameScheduler frameScheduler;
+            private volatile CalmDownListener innerCalmDownListener;
+
+            RendererVisualization(GLRenderer renderer, FrameScheduler frameScheduler) {
+                this.renderer = renderer;
+                this.frameScheduler = frameScheduler;
+                renderer.calmDownListener(new CalmDownListener() {
+                    @Override
+                    public void onCalmedDown() {
+                        stopRendering();
+                        CalmDownListener listener = innerCalmDownListener;
+                        if (listener != null) {
+                            listener.onCalmedDown();
+                        }
                     }
-                }
+                });
+            }
 
-                @Override
-                public void calmDownListener(@Nullable CalmDownListener calmDownListener) {
+            @Override
+            public void startRendering() {
+                frameScheduler.start();
+            }
 
-                }
+            @Override
+            public void stopRendering() {
+                frameScheduler.stop();
+            }
 
-                @Override
-                public void onDataReceived(float[] dBmArray, float[] ampsArray) {
-                    renderer.onDataReceived(dBmArray, ampsArray);
-                }
-            };
-            renderer.calmDownListener(new CalmDownListener() {
-                @Override
-                public void onCalmedDown() {
-                    audioVisualization.stopRendering();
-                }
-            });
-            handler.setUp(audioVisualization, builder.layersCount);
-            return renderer;
+            @Override
+            public void calmDownListener(@Nullable CalmDownListener calmDownListener) {
+                innerCalmDownListener = calmDownListener;
+            }
+
+            @Override
+            public void onDataReceived(float[] dBmArray, float[] ampsArray) {
+                renderer.onDataReceived(dBmArray, ampsArray);
+                frameScheduler.invalidate();
+            }
         }
     }
 
@@ -481,4 +890,48 @@ public class GLAudioVisualizationView extends GLSurfaceView implements AudioVisu
          */
         void updateConfiguration(@NonNull ColorsBuilder builder);
     }
+
+    /**
+     * Audio Visualization renderer with access to render scale, quality tier and OpenGL resources. Renderer
+     * returned by {@link RendererBuilder#build()} implements this interface.
+     */
+    public interface ExtendedAudioVisualizationRenderer extends AudioVisualizationRenderer {
+
+        /**
+         * Render at a fraction of native resolution. Can be called at any time.
+         *
+         * @param scale fraction of native resolution, from {@value Constants#MIN_RENDER_SCALE} to 1
+         */
+        void setRenderScale(float scale);
+
+        /**
+         * Get current fraction of native resolution used for rendering.
+         */
+        float getRenderScale();
+
+        /**
+         * Get current quality tier chosen by quality governor.
+         *
+         * @return one of {@code QUALITY_TIER_*} constants of {@link GLAudioVisualizationView}
+         */
+        int getQualityTier();
+
+        /**
+         * Delete all OpenGL objects created by renderer. Must be called on GL thread, for example with
+         * {@link GLSurfaceView#queueEvent(Runnable)}, before surface view is released. If renderer draws
+         * another frame after that, objects are created again.
+         */
+        void release();
+
+        /**
+         * Get number of OpenGL objects (programs, shaders, buffers, vertex arrays) created by renderer and
+         * not deleted yet. Useful for checking that nothing leaks. Can be called from any thread.
+         */
+        int getGLObjectsCount();
+
+        /**
+         * Get number of native bytes allocated for vertex and index data. Can be called from any thread.
+         */
+        int getNativeMemoryUsage();
+    }
 }
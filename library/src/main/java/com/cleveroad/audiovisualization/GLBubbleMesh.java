@@ -0,0 +1,83 @@
+package com.cleveroad.audiovisualization;
+
+import android.opengl.GLES20;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Draws all bubbles of a layer as circles in a single call. Third value of every vertex holds bubble's alpha.
+ */
+class GLBubbleMesh extends GLShape {
+
+	private static final String FRAGMENT_SHADER_CODE =
+			"precision mediump float;" +
+					"uniform vec4 " + VERTEX_COLOR + ";" +
+					"varying float vAlpha;" +
+					"void main() {" +
+					"  gl_FragColor = vec4(" + VERTEX_COLOR + ".rgb, vAlpha);" +
+					"}";
+
+	private static final int FLOATS_PER_VERTEX = LayerModel.FLOATS_PER_BUBBLE_VERTEX;
+
+	private final GLVertexArray vertexArray;
+	private final ShortBuffer[] indexBuffers = new ShortBuffer[LevelOfDetail.LEVELS];
+
+	/**
+	 * Get size of arena regions taken by mesh of specified layer.
+	 */
+	static int getArenaSize(LayerModel layer, boolean compact) {
+		int size = GLVertexArray.getArenaSize(layer.getBubbleVertices().length, compact);
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			size += NativeArena.sizeOfShorts(layer.getBubbleIndices(level).length);
+		}
+		return size;
+	}
+
+	/**
+	 * @param compact true to pass positions and alpha as compact coordinates, see {@link GLVertexArray}
+	 */
+	public GLBubbleMesh(GLResources resources, NativeArena arena, LayerModel layer, boolean compact) {
+		super(resources, getVertexShaderCode(compact), FRAGMENT_SHADER_CODE);
+		float[] vertices = layer.getBubbleVertices();
+		vertexArray = new GLVertexArray(arena, vertices.length, FLOATS_PER_VERTEX, compact);
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			short[] indices = layer.getBubbleIndices(level);
+			indexBuffers[level] = arena.allocateShorts(indices.length);
+			indexBuffers[level].put(indices);
+			indexBuffers[level].position(0);
+		}
+	}
+
+	private static String getVertexShaderCode(boolean compact) {
+		String position = GLVertexArray.position(VERTEX_POSITION, compact);
+		return "attribute vec4 " + VERTEX_POSITION + ";" +
+				"varying float vAlpha;" +
+				"void main() {" +
+				"  gl_Position = vec4(" + position + ".xy, 0.0, 1.0);" +
+				"  vAlpha = " + position + ".z;" +
+				"}";
+	}
+
+	/**
+	 * Draw visible bubbles of layer.
+	 * @param layer layer to draw
+	 */
+	public void draw(LayerModel layer) {
+		int count = layer.getBubblesCount();
+		if (count == 0) {
+			return;
+		}
+		gl.glUseProgram(getProgram());
+		int positionHandle = gl.glGetAttribLocation(getProgram(), VERTEX_POSITION);
+		gl.glEnableVertexAttribArray(positionHandle);
+		vertexArray.set(gl, positionHandle, layer.getBubbleVertices(), count * LayerModel.VERTICES_PER_BUBBLE * FLOATS_PER_VERTEX);
+		int colorHandle = gl.glGetUniformLocation(getProgram(), VERTEX_COLOR);
+		gl.glEnable(GLES20.GL_BLEND);
+		gl.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+		gl.glUniform4fv(colorHandle, 1, layer.getColor(), 0);
+		int level = layer.getBubbleLevel();
+		gl.glDrawElements(GLES20.GL_TRIANGLES, count * LayerModel.getIndicesPerBubble(level), GLES20.GL_UNSIGNED_SHORT, indexBuffers[level]);
+		gl.glDisableVertexAttribArray(positionHandle);
+		gl.glDisable(GLES20.GL_BLEND);
+	}
+}
@@ -0,0 +1,104 @@
+package com.cleveroad.audiovisualization;
+
+import android.opengl.GLES20;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Draws all bubbles of a layer as point sprites in a single call. Every bubble is one vertex, the circle itself is
+ * cut out and antialiased in the fragment shader.
+ */
+class GLBubbleSprites extends GLShape {
+
+	private static final String VERTEX_SHADER_CODE =
+			"attribute vec4 " + VERTEX_POSITION + ";" +
+					"varying float vAlpha;" +
+					"varying float vEdge;" +
+					"void main() {" +
+					"  gl_Position = vec4(" + VERTEX_POSITION + ".xy, 0.0, 1.0);" +
+					"  gl_PointSize = " + VERTEX_POSITION + ".z;" +
+					"  vAlpha = " + VERTEX_POSITION + ".w;" +
+					"  vEdge = 2.0 / max(" + VERTEX_POSITION + ".z, 1.0);" +
+					"}";
+	private static final String FRAGMENT_SHADER_CODE =
+			"precision mediump float;" +
+					"uniform vec4 " + VERTEX_COLOR + ";" +
+					"varying float vAlpha;" +
+					"varying float vEdge;" +
+					"void main() {" +
+					"  float r = length(gl_PointCoord - vec2(0.5)) * 2.0;" +
+					"  float coverage = 1.0 - smoothstep(1.0 - vEdge, 1.0, r);" +
+					"  if (coverage <= 0.0) discard;" +
+					"  gl_FragColor = vec4(" + VERTEX_COLOR + ".rgb, vAlpha * coverage);" +
+					"}";
+
+	/**
+	 * Number of floats per sprite: x, y, point size (in pixels), alpha.
+	 */
+	private static final int FLOATS_PER_SPRITE = LayerModel.FLOATS_PER_BUBBLE;
+
+	private final FloatBuffer vertexBuffer;
+	private final int capacity;
+	private float pointScale;
+	private float maxPointSize;
+
+	/**
+	 * Get size of arena region taken by sprites of specified capacity.
+	 */
+	static int getArenaSize(int capacity) {
+		return NativeArena.sizeOfFloats(capacity * FLOATS_PER_SPRITE);
+	}
+
+	public GLBubbleSprites(GLResources resources, NativeArena arena, int capacity) {
+		super(resources, VERTEX_SHADER_CODE, FRAGMENT_SHADER_CODE);
+		this.capacity = capacity;
+		vertexBuffer = arena.allocateFloats(capacity * FLOATS_PER_SPRITE);
+		float[] range = new float[2];
+		gl.glGetFloatv(GLES20.GL_ALIASED_POINT_SIZE_RANGE, range, 0);
+		maxPointSize = range[1];
+	}
+
+	/**
+	 * Update scale used for converting bubble sizes into pixels.
+	 * @param viewportWidth width of viewport in pixels
+	 */
+	public void setViewportWidth(int viewportWidth) {
+		// bubble size is measured in OpenGL X units, whole viewport is 2 units wide
+		pointScale = viewportWidth / 2f;
+	}
+
+	/**
+	 * Draw visible bubbles of layer.
+	 * @param layer layer to draw
+	 */
+	public void draw(LayerModel layer) {
+		int count = Math.min(layer.getBubblesCount(), capacity);
+		float[] bubbles = layer.getBubbleInstances();
+		for (int i = 0; i < count; i++) {
+			int offset = i * LayerModel.FLOATS_PER_BUBBLE;
+			float size = bubbles[offset + 2] * pointScale;
+			if (maxPointSize > 0 && size > maxPointSize) {
+				size = maxPointSize;
+			}
+			vertexBuffer.put(offset, bubbles[offset]);
+			vertexBuffer.put(offset + 1, bubbles[offset + 1]);
+			vertexBuffer.put(offset + 2, size);
+			vertexBuffer.put(offset + 3, bubbles[offset + 3]);
+		}
+		if (count == 0) {
+			return;
+		}
+		vertexBuffer.position(0);
+		gl.glUseProgram(getProgram());
+		int positionHandle = gl.glGetAttribLocation(getProgram(), VERTEX_POSITION);
+		gl.glEnableVertexAttribArray(positionHandle);
+		gl.glVertexAttribPointer(positionHandle, FLOATS_PER_SPRITE, GLES20.GL_FLOAT, false, FLOATS_PER_SPRITE * SIZE_OF_FLOAT, vertexBuffer);
+		int colorHandle = gl.glGetUniformLocation(getProgram(), VERTEX_COLOR);
+		gl.glEnable(GLES20.GL_BLEND);
+		gl.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+		gl.glUniform4fv(colorHandle, 1, layer.getColor(), 0);
+		gl.glDrawArrays(GLES20.GL_POINTS, 0, count);
+		gl.glDisableVertexAttribArray(positionHandle);
+		gl.glDisable(GLES20.GL_BLEND);
+	}
+}
@@ -0,0 +1,126 @@
+package com.cleveroad.audiovisualization;
+
+import android.opengl.GLSurfaceView;
+import android.os.Build;
+
+import javax.microedition.khronos.egl.EGL10;
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.egl.EGLDisplay;
+
+/**
+ * Config chooser that picks minimal surface format: requested color format without depth buffer, nothing
+ * in visualization uses it. Stencil buffer is requested only for overdraw reduction. Multisampling is optional and
+ * dropped if device has no such config.
+ */
+class GLConfigChooser implements GLSurfaceView.EGLConfigChooser {
+
+	private static final int EGL_OPENGL_ES2_BIT = 0x0004;
+	private static final int EGL_OPENGL_ES3_BIT_KHR = 0x0040;
+
+	/**
+	 * Penalty for every bit of color channel differing from requested format. Color format matters more than
+	 * size of ancillary buffers.
+	 */
+	private static final int COLOR_MISMATCH_PENALTY = 64;
+
+	private final int redSize;
+	private final int greenSize;
+	private final int blueSize;
+	private final int alphaSize;
+	private final int stencilSize;
+	private final int samples;
+
+	/**
+	 * @param surfaceFormat one of {@link GLAudioVisualizationView#SURFACE_FORMAT_RGBA8888} or
+	 * {@link GLAudioVisualizationView#SURFACE_FORMAT_RGB565}
+	 * @param stencilSize minimum number of stencil bits
+	 * @param samples number of samples per pixel for multisampling, 0 or 1 to disable it
+	 */
+	public GLConfigChooser(int surfaceFormat, int stencilSize, int samples) {
+		if (surfaceFormat == GLAudioVisualizationView.SURFACE_FORMAT_RGB565) {
+			redSize = 5;
+			greenSize = 6;
+			blueSize = 5;
+			alphaSize = 0;
+		} else {
+			redSize = 8;
+			greenSize = 8;
+			blueSize = 8;
+			alphaSize = 8;
+		}
+		this.stencilSize = stencilSize;
+		this.samples = samples > 1 ? samples : 0;
+	}
+
+	@Override
+	public EGLConfig chooseConfig(EGL10 egl, EGLDisplay display) {
+		// OpenGL ES 3.0 context needs config supporting it, otherwise context factory falls back to OpenGL ES 2.0
+		int[] renderableTypes = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+				? new int[] {EGL_OPENGL_ES3_BIT_KHR, EGL_OPENGL_ES2_BIT}
+				: new int[] {EGL_OPENGL_ES2_BIT};
+		for (int renderableType : renderableTypes) {
+			EGLConfig config = samples > 0 ? chooseConfig(egl, display, renderableType, stencilSize, samples) : null;
+			if (config == null) {
+				config = chooseConfig(egl, display, renderableType, stencilSize, 0);
+			}
+			if (config == null && stencilSize > 0) {
+				// renderer checks actual stencil bits and draws without overdraw reduction
+				config = chooseConfig(egl, display, renderableType, 0, 0);
+			}
+			if (config != null) {
+				return config;
+			}
+		}
+		throw new IllegalArgumentException("No EGL config found.");
+	}
+
+	private EGLConfig chooseConfig(EGL10 egl, EGLDisplay display, int renderableType, int stencilSize, int samples) {
+		int[] attributes = {
+				EGL10.EGL_RENDERABLE_TYPE, renderableType,
+				EGL10.EGL_RED_SIZE, redSize,
+				EGL10.EGL_GREEN_SIZE, greenSize,
+				EGL10.EGL_BLUE_SIZE, blueSize,
+				EGL10.EGL_ALPHA_SIZE, alphaSize,
+				EGL10.EGL_DEPTH_SIZE, 0,
+				EGL10.EGL_STENCIL_SIZE, stencilSize,
+				EGL10.EGL_SAMPLE_BUFFERS, samples > 0 ? 1 : 0,
+				EGL10.EGL_SAMPLES, samples,
+				EGL10.EGL_NONE
+		};
+		int[] count = new int[1];
+		if (!egl.eglChooseConfig(display, attributes, null, 0, count) || count[0] <= 0) {
+			return null;
+		}
+		EGLConfig[] configs = new EGLConfig[count[0]];
+		if (!egl.eglChooseConfig(display, attributes, configs, configs.length, count)) {
+			return null;
+		}
+		// sizes in attributes are only minimums, so look for exact color format with smallest ancillary buffers
+		EGLConfig bestConfig = null;
+		int bestPenalty = Integer.MAX_VALUE;
+		int[] value = new int[1];
+		for (int i = 0; i < count[0]; i++) {
+			EGLConfig config = configs[i];
+			if (config == null) {
+				continue;
+			}
+			int penalty = (Math.abs(getAttribute(egl, display, config, EGL10.EGL_RED_SIZE, value) - redSize)
+					+ Math.abs(getAttribute(egl, display, config, EGL10.EGL_GREEN_SIZE, value) - greenSize)
+					+ Math.abs(getAttribute(egl, display, config, EGL10.EGL_BLUE_SIZE, value) - blueSize)
+					+ Math.abs(getAttribute(egl, display, config, EGL10.EGL_ALPHA_SIZE, value) - alphaSize))
+					* COLOR_MISMATCH_PENALTY
+					+ getAttribute(egl, display, config, EGL10.EGL_DEPTH_SIZE, value)
+					+ getAttribute(egl, display, config, EGL10.EGL_STENCIL_SIZE, value)
+					+ Math.abs(getAttribute(egl, display, config, EGL10.EGL_SAMPLES, value) - samples);
+			if (penalty < bestPenalty) {
+				bestPenalty = penalty;
+				bestConfig = config;
+			}
+		}
+		return bestConfig;
+	}
+
+	private static int getAttribute(EGL10 egl, EGLDisplay display, EGLConfig config, int attribute, int[] value) {
+		return egl.eglGetConfigAttrib(display, config, attribute, value) ? value[0] : 0;
+	}
+}
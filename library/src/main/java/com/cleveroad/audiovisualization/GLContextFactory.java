@@ -0,0 +1,38 @@
+package com.cleveroad.audiovisualization;
+
+import android.opengl.GLSurfaceView;
+import android.os.Build;
+
+import javax.microedition.khronos.egl.EGL10;
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.egl.EGLContext;
+import javax.microedition.khronos.egl.EGLDisplay;
+
+/**
+ * Context factory that asks for OpenGL ES 3.0 context and falls back to OpenGL ES 2.0 if device doesn't support it.
+ * Renderer checks actual version of created context and picks drawing path accordingly.
+ */
+class GLContextFactory implements GLSurfaceView.EGLContextFactory {
+
+	private static final int EGL_CONTEXT_CLIENT_VERSION = 0x3098;
+	private static final int ES3_VERSION = 3;
+	private static final int ES2_VERSION = 2;
+
+	@Override
+	public EGLContext createContext(EGL10 egl, EGLDisplay display, EGLConfig eglConfig) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			EGLContext context = egl.eglCreateContext(display, eglConfig, EGL10.EGL_NO_CONTEXT,
+					new int[] {EGL_CONTEXT_CLIENT_VERSION, ES3_VERSION, EGL10.EGL_NONE});
+			if (context != null && context != EGL10.EGL_NO_CONTEXT) {
+				return context;
+			}
+		}
+		return egl.eglCreateContext(display, eglConfig, EGL10.EGL_NO_CONTEXT,
+				new int[] {EGL_CONTEXT_CLIENT_VERSION, ES2_VERSION, EGL10.EGL_NONE});
+	}
+
+	@Override
+	public void destroyContext(EGL10 egl, EGLDisplay display, EGLContext context) {
+		egl.eglDestroyContext(display, context);
+	}
+}
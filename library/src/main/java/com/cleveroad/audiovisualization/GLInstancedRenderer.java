@@ -0,0 +1,357 @@
+package com.cleveroad.audiovisualization;
+
+import android.annotation.TargetApi;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.os.Build;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * OpenGL ES 3.0 drawing of wave layers. Footer and waves of a layer are instances of one strip template with
+ * Bezier curve evaluated in vertex shader, bubbles are instances of one quad. Every layer has its own vertex array
+ * objects pointing into shared instance buffers and layer colors are kept in a uniform buffer, so each layer costs
+ * two draw calls without any attribute setup.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+class GLInstancedRenderer implements GLSceneRenderer {
+
+	private static final String COLORS_BLOCK = "LayerColors";
+	private static final String LAYER = "uLayer";
+	private static final String RATIO_Y = "uRatioY";
+	private static final String POINT_SCALE = "uPointScale";
+	private static final String COLORS_BLOCK_CODE =
+			"layout(std140) uniform " + COLORS_BLOCK + " {" +
+					"  vec4 colors[" + Constants.MAX_LAYERS_COUNT + "];" +
+					"};" +
+					"uniform int " + LAYER + ";";
+	private static final String WAVE_VERTEX_SHADER_CODE =
+			"#version 300 es\n" +
+					"layout(location = 0) in vec2 aTemplate;" +
+					"layout(location = 1) in vec4 aStartControl;" +
+					"layout(location = 2) in vec3 aEndBase;" +
+					"void main() {" +
+					"  float t = aTemplate.x;" +
+					"  float u = 1.0 - t;" +
+					"  vec2 p = aStartControl.xy * (u * u) + aStartControl.zw * (2.0 * t * u) + aEndBase.xy * (t * t);" +
+					"  gl_Position = vec4(p.x, mix(aEndBase.z, p.y, aTemplate.y), 0.0, 1.0);" +
+					"}";
+	private static final String WAVE_FRAGMENT_SHADER_CODE =
+			"#version 300 es\n" +
+					"precision mediump float;" +
+					COLORS_BLOCK_CODE +
+					"out vec4 fragColor;" +
+					"void main() {" +
+					"  fragColor = colors[" + LAYER + "];" +
+					"}";
+	private static final String BUBBLE_VERTEX_SHADER_CODE =
+			"#version 300 es\n" +
+					"layout(location = 0) in vec2 aCorner;" +
+					"layout(location = 1) in vec4 aBubble;" +
+					"uniform float " + RATIO_Y + ";" +
+					"uniform float " + POINT_SCALE + ";" +
+					"out vec2 vCorner;" +
+					"out float vAlpha;" +
+					"out float vEdge;" +
+					"void main() {" +
+					"  vec2 radius = vec2(0.5, 0.5 * " + RATIO_Y + ") * aBubble.z;" +
+					"  gl_Position = vec4(aBubble.xy + aCorner * radius, 0.0, 1.0);" +
+					"  vCorner = aCorner;" +
+					"  vAlpha = aBubble.w;" +
+					"  vEdge = 2.0 / max(aBubble.z * " + POINT_SCALE + ", 1.0);" +
+					"}";
+	private static final String BUBBLE_FRAGMENT_SHADER_CODE =
+			"#version 300 es\n" +
+					"precision mediump float;" +
+					COLORS_BLOCK_CODE +
+					"in vec2 vCorner;" +
+					"in float vAlpha;" +
+					"in float vEdge;" +
+					"out vec4 fragColor;" +
+					"void main() {" +
+					"  float coverage = 1.0 - smoothstep(1.0 - vEdge, 1.0, length(vCorner));" +
+					"  if (coverage <= 0.0) discard;" +
+					"  fragColor = vec4(colors[" + LAYER + "].rgb, vAlpha * coverage);" +
+					"}";
+
+	private static final int SIZE_OF_FLOAT = GLShape.SIZE_OF_FLOAT;
+	private static final int SIZE_OF_SHORT = GLShape.SIZE_OF_SHORT;
+	private static final int UNSIGNED_SHORT_MAX = 0xFFFF;
+	private static final int FLOATS_PER_BUBBLE = LayerModel.FLOATS_PER_BUBBLE;
+	private static final int FLOATS_PER_COLOR = 4;
+	private static final int COLORS_BINDING = 0;
+
+	/**
+	 * Wave strip templates of all levels of detail stored one after another in single buffer: two vertices
+	 * (curve and base) for every point of curve, including end. Template coordinates are in [0, 1] range and stored
+	 * as normalized unsigned shorts, quad corners are stored as shorts.
+	 */
+	private static final int[] WAVE_TEMPLATE_FIRST = new int[LevelOfDetail.LEVELS];
+	private static final int[] WAVE_TEMPLATE_COUNT = new int[LevelOfDetail.LEVELS];
+	private static final int WAVE_TEMPLATE_VERTICES;
+
+	static {
+		int first = 0;
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			WAVE_TEMPLATE_FIRST[level] = first;
+			WAVE_TEMPLATE_COUNT[level] = (LevelOfDetail.SEGMENTS[level] + 1) * 2;
+			first += WAVE_TEMPLATE_COUNT[level];
+		}
+		WAVE_TEMPLATE_VERTICES = first;
+	}
+	private static final int QUAD_VERTICES = 4;
+
+	private final GLApi gl;
+	private final GLResources resources;
+	private final boolean overdrawReduction;
+	private final int layersCount;
+	private final int wavesPerLayer;
+	private final int bubblesPerLayer;
+	private final NativeArena arena;
+	private FloatBuffer waveInstances;
+	private FloatBuffer bubbleInstances;
+	private FloatBuffer colors;
+	private final int[] waveCounts;
+	private final int[] waveLevels;
+	private final int[] bubbleCounts;
+	private final int[] waveVaos;
+	private final int[] bubbleVaos;
+	private final int[] buffers = new int[5];
+	private int waveProgram;
+	private int bubbleProgram;
+	private int waveLayerHandle;
+	private int bubbleLayerHandle;
+	private int ratioYHandle;
+	private int pointScaleHandle;
+	private float pointScale;
+	private int colorsVersion = -1;
+
+	/**
+	 * @param overdrawReduction true to draw layers front-to-back with stencil test, surface must have stencil buffer
+	 */
+	public GLInstancedRenderer(GLResources resources, NativeArena arena, GLAudioVisualizationView.Configuration configuration,
+			boolean overdrawReduction) {
+		this.gl = resources.getApi();
+		this.resources = resources;
+		this.arena = arena;
+		this.overdrawReduction = overdrawReduction;
+		this.layersCount = configuration.layersCount;
+		// waves plus footer
+		this.wavesPerLayer = configuration.wavesCount + 1;
+		this.bubblesPerLayer = configuration.bubblesPerLayer;
+		waveCounts = new int[layersCount];
+		waveLevels = new int[layersCount];
+		bubbleCounts = new int[layersCount];
+		waveVaos = new int[layersCount];
+		bubbleVaos = new int[layersCount];
+	}
+
+	@Override
+	public int getOutputs() {
+		// everything is built from instances
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @return true if everything is ready for drawing, false if OpenGL ES 3.0 path can't be used
+	 */
+	@Override
+	public boolean init(SceneModel scene) {
+		waveProgram = resources.getProgram(WAVE_VERTEX_SHADER_CODE, WAVE_FRAGMENT_SHADER_CODE);
+		bubbleProgram = resources.getProgram(BUBBLE_VERTEX_SHADER_CODE, BUBBLE_FRAGMENT_SHADER_CODE);
+		if (waveProgram == 0 || bubbleProgram == 0) {
+			return false;
+		}
+		waveLayerHandle = gl.glGetUniformLocation(waveProgram, LAYER);
+		bubbleLayerHandle = gl.glGetUniformLocation(bubbleProgram, LAYER);
+		ratioYHandle = gl.glGetUniformLocation(bubbleProgram, RATIO_Y);
+		pointScaleHandle = gl.glGetUniformLocation(bubbleProgram, POINT_SCALE);
+		gl.glUniformBlockBinding(waveProgram, gl.glGetUniformBlockIndex(waveProgram, COLORS_BLOCK), COLORS_BINDING);
+		gl.glUniformBlockBinding(bubbleProgram, gl.glGetUniformBlockIndex(bubbleProgram, COLORS_BLOCK), COLORS_BINDING);
+
+		int waveInstancesSize = layersCount * wavesPerLayer * WavesModel.FLOATS_PER_INSTANCE;
+		int bubbleInstancesSize = layersCount * bubblesPerLayer * FLOATS_PER_BUBBLE;
+		int colorsSize = Constants.MAX_LAYERS_COUNT * FLOATS_PER_COLOR;
+		arena.reset(NativeArena.sizeOfShorts(WAVE_TEMPLATE_VERTICES * 2) + NativeArena.sizeOfShorts(QUAD_VERTICES * 2)
+				+ NativeArena.sizeOfFloats(waveInstancesSize) + NativeArena.sizeOfFloats(bubbleInstancesSize)
+				+ NativeArena.sizeOfFloats(colorsSize));
+		waveInstances = arena.allocateFloats(waveInstancesSize);
+		bubbleInstances = arena.allocateFloats(bubbleInstancesSize);
+		colors = arena.allocateFloats(colorsSize);
+
+		resources.genBuffers(buffers.length, buffers, 0);
+		int waveTemplateBuffer = buffers[0];
+		int quadBuffer = buffers[1];
+		int waveInstancesBuffer = buffers[2];
+		int bubbleInstancesBuffer = buffers[3];
+		int colorsBuffer = buffers[4];
+
+		ShortBuffer template = arena.allocateShorts(WAVE_TEMPLATE_VERTICES * 2);
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			int segments = LevelOfDetail.SEGMENTS[level];
+			for (int i = 0; i <= segments; i++) {
+				short t = (short) Math.round((float) i / segments * UNSIGNED_SHORT_MAX);
+				template.put(t).put((short) UNSIGNED_SHORT_MAX).put(t).put((short) 0);
+			}
+		}
+		template.position(0);
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, waveTemplateBuffer);
+		gl.glBufferData(GLES20.GL_ARRAY_BUFFER, template.capacity() * SIZE_OF_SHORT, template, GLES20.GL_STATIC_DRAW);
+
+		ShortBuffer quad = arena.allocateShorts(QUAD_VERTICES * 2);
+		quad.put(new short[] {-1, -1, 1, -1, -1, 1, 1, 1});
+		quad.position(0);
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, quadBuffer);
+		gl.glBufferData(GLES20.GL_ARRAY_BUFFER, quad.capacity() * SIZE_OF_SHORT, quad, GLES20.GL_STATIC_DRAW);
+
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, waveInstancesBuffer);
+		gl.glBufferData(GLES20.GL_ARRAY_BUFFER, waveInstances.capacity() * SIZE_OF_FLOAT, null, GLES20.GL_DYNAMIC_DRAW);
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, bubbleInstancesBuffer);
+		gl.glBufferData(GLES20.GL_ARRAY_BUFFER, Math.max(bubbleInstances.capacity(), 1) * SIZE_OF_FLOAT, null, GLES20.GL_DYNAMIC_DRAW);
+		gl.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, colorsBuffer);
+		gl.glBufferData(GLES30.GL_UNIFORM_BUFFER, colors.capacity() * SIZE_OF_FLOAT, null, GLES20.GL_DYNAMIC_DRAW);
+		gl.glBindBufferBase(GLES30.GL_UNIFORM_BUFFER, COLORS_BINDING, colorsBuffer);
+		gl.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, 0);
+
+		resources.genVertexArrays(layersCount, waveVaos, 0);
+		resources.genVertexArrays(layersCount, bubbleVaos, 0);
+		for (int i = 0; i < layersCount; i++) {
+			gl.glBindVertexArray(waveVaos[i]);
+			gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, waveTemplateBuffer);
+			gl.glEnableVertexAttribArray(0);
+			gl.glVertexAttribPointer(0, 2, GLES20.GL_UNSIGNED_SHORT, true, 2 * SIZE_OF_SHORT, 0);
+			int stride = WavesModel.FLOATS_PER_INSTANCE * SIZE_OF_FLOAT;
+			int offset = i * wavesPerLayer * stride;
+			gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, waveInstancesBuffer);
+			gl.glEnableVertexAttribArray(1);
+			gl.glVertexAttribPointer(1, 4, GLES20.GL_FLOAT, false, stride, offset);
+			gl.glVertexAttribDivisor(1, 1);
+			gl.glEnableVertexAttribArray(2);
+			gl.glVertexAttribPointer(2, 3, GLES20.GL_FLOAT, false, stride, offset + 4 * SIZE_OF_FLOAT);
+			gl.glVertexAttribDivisor(2, 1);
+
+			gl.glBindVertexArray(bubbleVaos[i]);
+			gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, quadBuffer);
+			gl.glEnableVertexAttribArray(0);
+			gl.glVertexAttribPointer(0, 2, GLES20.GL_SHORT, false, 2 * SIZE_OF_SHORT, 0);
+			stride = FLOATS_PER_BUBBLE * SIZE_OF_FLOAT;
+			gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, bubbleInstancesBuffer);
+			gl.glEnableVertexAttribArray(1);
+			gl.glVertexAttribPointer(1, FLOATS_PER_BUBBLE, GLES20.GL_FLOAT, false, stride, i * bubblesPerLayer * stride);
+			gl.glVertexAttribDivisor(1, 1);
+		}
+		gl.glBindVertexArray(0);
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		return true;
+	}
+
+	@Override
+	public void onSurfaceChanged(int width, int height) {
+		// bubble size is measured in OpenGL X units, whole viewport is 2 units wide
+		pointScale = width / 2f;
+	}
+
+	@Override
+	public void draw(SceneModel scene, float ratioY) {
+		LayerModel[] layers = scene.getLayers();
+		// binding point is state of context, which may be shared with other renderers
+		gl.glBindBufferBase(GLES30.GL_UNIFORM_BUFFER, COLORS_BINDING, buffers[4]);
+		int colorsVersion = scene.getColorsVersion();
+		if (colorsVersion != this.colorsVersion) {
+			this.colorsVersion = colorsVersion;
+			for (LayerModel layer : layers) {
+				colors.put(layer.getColor(), 0, FLOATS_PER_COLOR);
+			}
+			colors.position(0);
+			gl.glBufferSubData(GLES30.GL_UNIFORM_BUFFER, 0, layers.length * FLOATS_PER_COLOR * SIZE_OF_FLOAT, colors);
+		}
+		gl.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, 0);
+		// every layer has fixed slice of instance buffers, only its live instances are uploaded
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, buffers[2]);
+		for (int i = 0; i < layers.length; i++) {
+			LayerModel layer = layers[i];
+			waveCounts[i] = layer.getWaveInstancesCount();
+			waveLevels[i] = layer.getWaveLevel();
+			uploadInstances(waveInstances, i * wavesPerLayer * WavesModel.FLOATS_PER_INSTANCE,
+					layer.getWaveInstances(), waveCounts[i] * WavesModel.FLOATS_PER_INSTANCE);
+		}
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, buffers[3]);
+		for (int i = 0; i < layers.length; i++) {
+			LayerModel layer = layers[i];
+			bubbleCounts[i] = Math.min(layer.getBubblesCount(), bubblesPerLayer);
+			uploadInstances(bubbleInstances, i * bubblesPerLayer * FLOATS_PER_BUBBLE,
+					layer.getBubbleInstances(), bubbleCounts[i] * FLOATS_PER_BUBBLE);
+		}
+		gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+
+		gl.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+		if (overdrawReduction) {
+			drawFrontToBack(layers.length, ratioY);
+		} else {
+			for (int i = 0; i < layers.length; i++) {
+				drawWaves(i);
+				if (bubbleCounts[i] > 0) {
+					drawBubbles(i, ratioY);
+				}
+			}
+		}
+		gl.glBindVertexArray(0);
+	}
+
+	/**
+	 * Copy instances into their slice of native buffer and upload that slice to bound array buffer.
+	 */
+	private void uploadInstances(FloatBuffer buffer, int offset, float[] instances, int size) {
+		if (size == 0) {
+			return;
+		}
+		buffer.position(offset);
+		buffer.put(instances, 0, size);
+		buffer.position(offset);
+		gl.glBufferSubData(GLES20.GL_ARRAY_BUFFER, offset * SIZE_OF_FLOAT, size * SIZE_OF_FLOAT, buffer);
+	}
+
+	/**
+	 * Draw opaque layers from top to bottom, so every pixel is shaded once, then blend bubbles over them.
+	 */
+	private void drawFrontToBack(int count, float ratioY) {
+		gl.glEnable(GLES20.GL_STENCIL_TEST);
+		// first layer covering a pixel writes its number into stencil, layers below are rejected there
+		gl.glStencilOp(GLES20.GL_KEEP, GLES20.GL_KEEP, GLES20.GL_REPLACE);
+		for (int i = count - 1; i >= 0; i--) {
+			gl.glStencilFunc(GLES20.GL_GREATER, i + 1, STENCIL_MASK);
+			drawWaves(i);
+		}
+		// bubbles of a layer stay visible over the layer itself, layers below it and background
+		gl.glStencilOp(GLES20.GL_KEEP, GLES20.GL_KEEP, GLES20.GL_KEEP);
+		for (int i = 0; i < count; i++) {
+			if (bubbleCounts[i] == 0) {
+				continue;
+			}
+			gl.glStencilFunc(GLES20.GL_GEQUAL, i + 1, STENCIL_MASK);
+			drawBubbles(i, ratioY);
+		}
+		gl.glDisable(GLES20.GL_STENCIL_TEST);
+	}
+
+	private void drawWaves(int layer) {
+		gl.glUseProgram(waveProgram);
+		gl.glUniform1i(waveLayerHandle, layer);
+		gl.glBindVertexArray(waveVaos[layer]);
+		int level = waveLevels[layer];
+		gl.glDrawArraysInstanced(GLES20.GL_TRIANGLE_STRIP, WAVE_TEMPLATE_FIRST[level], WAVE_TEMPLATE_COUNT[level], waveCounts[layer]);
+	}
+
+	private void drawBubbles(int layer, float ratioY) {
+		gl.glUseProgram(bubbleProgram);
+		gl.glUniform1i(bubbleLayerHandle, layer);
+		gl.glUniform1f(ratioYHandle, ratioY);
+		gl.glUniform1f(pointScaleHandle, pointScale);
+		gl.glBindVertexArray(bubbleVaos[layer]);
+		gl.glEnable(GLES20.GL_BLEND);
+		gl.glDrawArraysInstanced(GLES20.GL_TRIANGLE_STRIP, 0, QUAD_VERTICES, bubbleCounts[layer]);
+		gl.glDisable(GLES20.GL_BLEND);
+	}
+}
@@ -0,0 +1,57 @@
+package com.cleveroad.audiovisualization;
+
+import android.opengl.GLES20;
+
+import java.nio.ShortBuffer;
+
+/**
+ * Single triangle mesh holding footer and all waves of a layer, so the whole layer is drawn in one call.
+ */
+class GLLayerMesh extends GLShape {
+
+	private final GLVertexArray vertexArray;
+	private final ShortBuffer[] indexBuffers = new ShortBuffer[LevelOfDetail.LEVELS];
+
+	/**
+	 * Get size of arena regions taken by mesh of specified layer.
+	 */
+	static int getArenaSize(LayerModel layer, boolean compact) {
+		int size = GLVertexArray.getArenaSize(layer.getMeshVertices().length, compact);
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			size += NativeArena.sizeOfShorts(layer.getMeshIndices(level).length);
+		}
+		return size;
+	}
+
+	/**
+	 * @param compact true to pass positions as compact coordinates, see {@link GLVertexArray}
+	 */
+	public GLLayerMesh(GLResources resources, NativeArena arena, LayerModel layer, boolean compact) {
+		super(resources, compact);
+		float[] vertices = layer.getMeshVertices();
+		vertexArray = new GLVertexArray(arena, vertices.length, COORDS_PER_VERTEX, compact);
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			short[] indices = layer.getMeshIndices(level);
+			indexBuffers[level] = arena.allocateShorts(indices.length);
+			indexBuffers[level].put(indices);
+			indexBuffers[level].position(0);
+		}
+	}
+
+	/**
+	 * Draw footer and waves of layer.
+	 * @param layer layer to draw
+	 */
+	public void draw(LayerModel layer) {
+		float[] vertices = layer.getMeshVertices();
+		gl.glUseProgram(getProgram());
+		int positionHandle = gl.glGetAttribLocation(getProgram(), VERTEX_POSITION);
+		gl.glEnableVertexAttribArray(positionHandle);
+		vertexArray.set(gl, positionHandle, vertices, vertices.length);
+		int colorHandle = gl.glGetUniformLocation(getProgram(), VERTEX_COLOR);
+		gl.glUniform4fv(colorHandle, 1, layer.getColor(), 0);
+		ShortBuffer indexBuffer = indexBuffers[layer.getWaveLevel()];
+		gl.glDrawElements(GLES20.GL_TRIANGLES, indexBuffer.capacity(), GLES20.GL_UNSIGNED_SHORT, indexBuffer);
+		gl.glDisableVertexAttribArray(positionHandle);
+	}
+}
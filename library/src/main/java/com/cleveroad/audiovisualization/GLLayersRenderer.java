@@ -0,0 +1,122 @@
+package com.cleveroad.audiovisualization;
+
+import android.opengl.GLES20;
+
+/**
+ * OpenGL ES 2.0 drawing of wave layers. Footer and waves of every layer are drawn as one mesh, bubbles are drawn
+ * as one mesh of circles or as point sprites.
+ */
+class GLLayersRenderer implements GLSceneRenderer {
+
+	private final GLApi gl;
+	private final GLResources resources;
+	private final NativeArena arena;
+	private final int bubblesRenderMode;
+	private final boolean overdrawReduction;
+	private final boolean compactVertices;
+	private GLLayerMesh[] meshes;
+	private GLBubbleMesh[] bubbleMeshes;
+	private GLBubbleSprites[] bubbleSprites;
+
+	/**
+	 * @param overdrawReduction true to draw layers front-to-back with stencil test, surface must have stencil buffer
+	 */
+	public GLLayersRenderer(GLResources resources, NativeArena arena, GLAudioVisualizationView.Configuration configuration,
+			boolean overdrawReduction) {
+		this.gl = resources.getApi();
+		this.resources = resources;
+		this.arena = arena;
+		this.bubblesRenderMode = configuration.bubblesRenderMode;
+		this.overdrawReduction = overdrawReduction;
+		this.compactVertices = configuration.compactVertices;
+	}
+
+	@Override
+	public int getOutputs() {
+		int outputs = LayerModel.OUTPUT_MESH;
+		if (bubblesRenderMode == GLAudioVisualizationView.BUBBLES_RENDER_MODE_CIRCLES) {
+			outputs |= LayerModel.OUTPUT_BUBBLE_MESH;
+		}
+		return outputs;
+	}
+
+	@Override
+	public boolean init(SceneModel scene) {
+		LayerModel[] layers = scene.getLayers();
+		meshes = new GLLayerMesh[layers.length];
+		bubbleMeshes = new GLBubbleMesh[layers.length];
+		bubbleSprites = new GLBubbleSprites[layers.length];
+		int arenaSize = 0;
+		for (LayerModel layer : layers) {
+			arenaSize += GLLayerMesh.getArenaSize(layer, compactVertices);
+			if (bubblesRenderMode == GLAudioVisualizationView.BUBBLES_RENDER_MODE_POINTS) {
+				arenaSize += GLBubbleSprites.getArenaSize(layer.getBubblesCapacity());
+			} else {
+				arenaSize += GLBubbleMesh.getArenaSize(layer, compactVertices);
+			}
+		}
+		arena.reset(arenaSize);
+		for (int i = 0; i < layers.length; i++) {
+			meshes[i] = new GLLayerMesh(resources, arena, layers[i], compactVertices);
+			if (bubblesRenderMode == GLAudioVisualizationView.BUBBLES_RENDER_MODE_POINTS) {
+				bubbleSprites[i] = new GLBubbleSprites(resources, arena, layers[i].getBubblesCapacity());
+			} else {
+				bubbleMeshes[i] = new GLBubbleMesh(resources, arena, layers[i], compactVertices);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void onSurfaceChanged(int width, int height) {
+		for (GLBubbleSprites sprites : bubbleSprites) {
+			if (sprites != null) {
+				sprites.setViewportWidth(width);
+			}
+		}
+	}
+
+	@Override
+	public void draw(SceneModel scene, float ratioY) {
+		LayerModel[] layers = scene.getLayers();
+		if (overdrawReduction) {
+			drawFrontToBack(layers);
+			return;
+		}
+		for (int i = 0; i < layers.length; i++) {
+			meshes[i].draw(layers[i]);
+			drawBubbles(i, layers[i]);
+		}
+	}
+
+	/**
+	 * Draw opaque layers from top to bottom, so every pixel is shaded once, then blend bubbles over them.
+	 */
+	private void drawFrontToBack(LayerModel[] layers) {
+		gl.glEnable(GLES20.GL_STENCIL_TEST);
+		// first layer covering a pixel writes its number into stencil, layers below are rejected there
+		gl.glStencilOp(GLES20.GL_KEEP, GLES20.GL_KEEP, GLES20.GL_REPLACE);
+		for (int i = layers.length - 1; i >= 0; i--) {
+			gl.glStencilFunc(GLES20.GL_GREATER, i + 1, STENCIL_MASK);
+			meshes[i].draw(layers[i]);
+		}
+		// bubbles of a layer stay visible over the layer itself, layers below it and background
+		gl.glStencilOp(GLES20.GL_KEEP, GLES20.GL_KEEP, GLES20.GL_KEEP);
+		for (int i = 0; i < layers.length; i++) {
+			if (layers[i].getBubblesCount() == 0) {
+				continue;
+			}
+			gl.glStencilFunc(GLES20.GL_GEQUAL, i + 1, STENCIL_MASK);
+			drawBubbles(i, layers[i]);
+		}
+		gl.glDisable(GLES20.GL_STENCIL_TEST);
+	}
+
+	private void drawBubbles(int index, LayerModel layer) {
+		if (bubbleSprites[index] != null) {
+			bubbleSprites[index].draw(layer);
+		} else {
+			bubbleMeshes[index].draw(layer);
+		}
+	}
+}
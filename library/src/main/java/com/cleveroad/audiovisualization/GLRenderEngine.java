@@ -0,0 +1,386 @@
+package com.cleveroad.audiovisualization;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.microedition.khronos.egl.EGL10;
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.egl.EGLContext;
+import javax.microedition.khronos.egl.EGLDisplay;
+import javax.microedition.khronos.egl.EGLSurface;
+
+/**
+ * Draws several visualizations on one thread with one EGL context. Every visualization has its own window surface,
+ * buffers and scene, while thread, context and compiled programs are shared, so each extra visualization costs
+ * only its surface and vertex data. Engine is started when first target is created and stopped when last one is
+ * released. All targets use the same surface format: 8 bits per channel with alpha and stencil buffer, without
+ * multisampling.
+ */
+class GLRenderEngine {
+
+	private static final String THREAD_NAME = "AudioVisualizationGL";
+	private static final int STENCIL_SIZE = 8;
+	private static final int EGL_CONTEXT_LOST = 0x300E;
+
+	private static final Object LOCK = new Object();
+	private static GLRenderEngine instance;
+	private static int targetsCount;
+
+	private final HandlerThread thread;
+	private final Handler handler;
+	private final GLResources resources = new GLResources(AndroidGLApi.INSTANCE);
+
+	/**
+	 * Targets and EGL objects, touched only on engine thread.
+	 */
+	private final List<RenderTarget> targets = new ArrayList<>();
+	private final List<GLRenderer> pendingReleases = new ArrayList<>();
+	private EGL10 egl;
+	private EGLDisplay display;
+	private EGLConfig eglConfig;
+	private EGLContext eglContext;
+
+	/**
+	 * Create target drawn by shared engine, engine is started if it's not running.
+	 * @param height height of screen in pixels
+	 */
+	static RenderTarget createTarget(GLAudioVisualizationView.Configuration configuration, float height) {
+		synchronized (LOCK) {
+			if (instance == null) {
+				instance = new GLRenderEngine();
+			}
+			targetsCount++;
+			GLRenderEngine engine = instance;
+			return engine.new RenderTarget(new GLRenderer(configuration, height, engine.resources));
+		}
+	}
+
+	private GLRenderEngine() {
+		thread = new HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_DISPLAY);
+		thread.start();
+		handler = new Handler(thread.getLooper());
+	}
+
+	/**
+	 * Make sure context exists, creating it on first use or after it was lost.
+	 * @return true if context is ready
+	 */
+	private boolean ensureContext() {
+		if (eglContext != null) {
+			return true;
+		}
+		if (egl == null) {
+			egl = (EGL10) EGLContext.getEGL();
+			display = egl.eglGetDisplay(EGL10.EGL_DEFAULT_DISPLAY);
+			if (display == EGL10.EGL_NO_DISPLAY || !egl.eglInitialize(display, new int[2])) {
+				egl = null;
+				return false;
+			}
+			eglConfig = new GLConfigChooser(GLAudioVisualizationView.SURFACE_FORMAT_RGBA8888, STENCIL_SIZE, 0)
+					.chooseConfig(egl, display);
+		}
+		EGLContext context = new GLContextFactory().createContext(egl, display, eglConfig);
+		if (context == null || context == EGL10.EGL_NO_CONTEXT) {
+			return false;
+		}
+		eglContext = context;
+		return true;
+	}
+
+	private boolean makeCurrent(EGLSurface surface) {
+		if (egl.eglMakeCurrent(display, surface, surface, eglContext)) {
+			return true;
+		}
+		checkContextLost();
+		return false;
+	}
+
+	/**
+	 * Drop context if driver lost it, objects are freed together with it. New context is created on next frame and
+	 * every target recreates its objects there.
+	 */
+	private void checkContextLost() {
+		if (egl.eglGetError() != EGL_CONTEXT_LOST) {
+			return;
+		}
+		egl.eglMakeCurrent(display, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_CONTEXT);
+		egl.eglDestroyContext(display, eglContext);
+		eglContext = null;
+		resources.onContextLost();
+		pendingReleases.clear();
+		for (RenderTarget target : targets) {
+			target.created = false;
+		}
+	}
+
+	/**
+	 * Delete objects of released targets, some surface of context must be current.
+	 */
+	private void releasePending() {
+		for (GLRenderer renderer : pendingReleases) {
+			renderer.release();
+		}
+		pendingReleases.clear();
+	}
+
+	/**
+	 * Find surface objects of a released target can be deleted with.
+	 */
+	private EGLSurface findSurface() {
+		for (RenderTarget target : targets) {
+			if (target.eglSurface != null) {
+				return target.eglSurface;
+			}
+		}
+		return null;
+	}
+
+	private void shutdown() {
+		if (eglContext != null) {
+			// programs and orphaned buffers are freed together with context
+			egl.eglMakeCurrent(display, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_CONTEXT);
+			egl.eglDestroyContext(display, eglContext);
+			eglContext = null;
+		}
+		// display is not terminated, it's shared with other EGL users of the process
+		resources.onContextLost();
+		pendingReleases.clear();
+		thread.quit();
+	}
+
+	/**
+	 * Run task on engine thread and wait until it's done.
+	 */
+	private void runAndWait(final Runnable task) {
+		if (Looper.myLooper() == thread.getLooper()) {
+			task.run();
+			return;
+		}
+		final boolean[] done = new boolean[1];
+		boolean posted = handler.post(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					task.run();
+				} finally {
+					synchronized (done) {
+						done[0] = true;
+						done.notifyAll();
+					}
+				}
+			}
+		});
+		if (!posted) {
+			// engine was stopped, there's nothing left to wait for
+			return;
+		}
+		synchronized (done) {
+			while (!done[0]) {
+				try {
+					done.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Window drawn by engine. Methods can be called from any thread, window is usually set and removed from
+	 * callbacks of surface view or texture view on main thread.
+	 */
+	class RenderTarget implements FrameScheduler.Target {
+
+		private final GLRenderer renderer;
+		private volatile boolean continuous;
+		private volatile boolean renderRequested;
+		private volatile boolean released;
+
+		/**
+		 * State touched only on engine thread.
+		 */
+		private EGLSurface eglSurface;
+		private boolean created;
+		private boolean sizeChanged;
+		private int width;
+		private int height;
+
+		private final Runnable drawRunnable = new Runnable() {
+			@Override
+			public void run() {
+				renderRequested = false;
+				draw();
+				if (continuous && eglSurface != null) {
+					// swapping buffers waits for vsync, so it's not a busy loop
+					requestRender();
+				}
+			}
+		};
+
+		private RenderTarget(GLRenderer renderer) {
+			this.renderer = renderer;
+			handler.post(new Runnable() {
+				@Override
+				public void run() {
+					targets.add(RenderTarget.this);
+				}
+			});
+		}
+
+		/**
+		 * Get renderer drawing this target.
+		 */
+		public GLRenderer getRenderer() {
+			return renderer;
+		}
+
+		/**
+		 * Start drawing to window.
+		 * @param window {@link android.view.Surface}, {@link android.view.SurfaceHolder} or
+		 * {@link android.graphics.SurfaceTexture}
+		 */
+		public void setWindow(@NonNull final Object window, final int width, final int height) {
+			handler.post(new Runnable() {
+				@Override
+				public void run() {
+					destroySurface();
+					if (released || !ensureContext()) {
+						return;
+					}
+					EGLSurface surface = egl.eglCreateWindowSurface(display, eglConfig, window, null);
+					if (surface == null || surface == EGL10.EGL_NO_SURFACE) {
+						return;
+					}
+					eglSurface = surface;
+					setSize(width, height);
+				}
+			});
+			requestRender();
+		}
+
+		/**
+		 * Report new size of window.
+		 */
+		public void onSizeChanged(final int width, final int height) {
+			handler.post(new Runnable() {
+				@Override
+				public void run() {
+					setSize(width, height);
+				}
+			});
+			requestRender();
+		}
+
+		private void setSize(int width, int height) {
+			this.width = width;
+			this.height = height;
+			sizeChanged = true;
+		}
+
+		/**
+		 * Stop drawing to window and destroy its EGL surface. Blocks until surface is destroyed, since window can't
+		 * be used after callback reporting its destruction returns. Objects of renderer stay alive, so drawing
+		 * continues from the same state when new window is set.
+		 */
+		public void removeWindow() {
+			runAndWait(new Runnable() {
+				@Override
+				public void run() {
+					destroySurface();
+				}
+			});
+		}
+
+		private void destroySurface() {
+			if (eglSurface == null) {
+				return;
+			}
+			if (egl.eglGetCurrentSurface(EGL10.EGL_DRAW) == eglSurface) {
+				egl.eglMakeCurrent(display, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_CONTEXT);
+			}
+			egl.eglDestroySurface(display, eglSurface);
+			eglSurface = null;
+		}
+
+		@Override
+		public void requestRender() {
+			if (!renderRequested) {
+				renderRequested = true;
+				handler.post(drawRunnable);
+			}
+		}
+
+		@Override
+		public void setContinuous(boolean continuous) {
+			this.continuous = continuous;
+			if (continuous) {
+				requestRender();
+			}
+		}
+
+		private void draw() {
+			if (eglSurface == null || eglContext == null || !makeCurrent(eglSurface)) {
+				return;
+			}
+			releasePending();
+			if (!created) {
+				renderer.onSurfaceCreated(null, eglConfig);
+				created = true;
+				sizeChanged = true;
+			}
+			if (sizeChanged) {
+				renderer.onSurfaceChanged(null, width, height);
+				sizeChanged = false;
+			}
+			renderer.onDrawFrame(null);
+			if (!egl.eglSwapBuffers(display, eglSurface)) {
+				checkContextLost();
+			}
+		}
+
+		/**
+		 * Destroy surface and objects of target. Engine is stopped if it was the last target.
+		 */
+		public void release() {
+			synchronized (LOCK) {
+				if (released) {
+					return;
+				}
+				released = true;
+				targetsCount--;
+				handler.removeCallbacks(drawRunnable);
+				handler.post(new Runnable() {
+					@Override
+					public void run() {
+						destroySurface();
+						targets.remove(RenderTarget.this);
+						if (created) {
+							pendingReleases.add(renderer);
+							EGLSurface surface = findSurface();
+							if (surface != null && makeCurrent(surface)) {
+								releasePending();
+							}
+						}
+					}
+				});
+				if (targetsCount == 0) {
+					final GLRenderEngine engine = GLRenderEngine.this;
+					instance = null;
+					handler.post(new Runnable() {
+						@Override
+						public void run() {
+							engine.shutdown();
+						}
+					});
+				}
+			}
+		}
+	}
+}
@@ -2,7 +2,9 @@ package com.cleveroad.audiovisualization;
 
 import android.content.Context;
 import android.opengl.GLES20;
+import android.os.Build;
 import android.support.annotation.NonNull;
+import android.util.Log;
 
 import java.util.Random;
 
@@ -12,25 +14,71 @@ import javax.microedition.khronos.opengles.GL10;
 /**
  * OpenGL renderer implementation.
  */
-class GLRenderer implements GLAudioVisualizationView.AudioVisualizationRenderer {
+class GLRenderer implements GLAudioVisualizationView.ExtendedAudioVisualizationRenderer {
 
-	private static final long ANIMATION_TIME = 400;
-	private static final float D_ANGLE = (float) (2 * Math.PI / ANIMATION_TIME);
+	private static final String TAG = "GLRenderer";
 
 	private final GLAudioVisualizationView.Configuration configuration;
-	private GLWaveLayer[] layers;
-	private long startTime;
+	private final GLApi gl;
+	private final GLResources resources;
+	private final NativeArena arena = new NativeArena();
+	private final boolean sharedContext;
+	private volatile SceneModel scene;
+	private GLSceneRenderer sceneRenderer;
+	private long lastFrameTime;
+	private boolean hasLastFrame;
 	private final float height;
-	private final Random random;
 	private float ratioY = 1;
+	private int viewportWidth;
+	private int viewportHeight;
+	private int clearMask = GLES20.GL_COLOR_BUFFER_BIT;
+	private int waveLevel = LevelOfDetail.FINEST;
+	private int bubbleLevel = LevelOfDetail.FINEST;
+	private int lodBias;
+	private final QualityGovernor qualityGovernor;
+	private final FrameLoadController loadController;
+	private QualityGovernor.Listener qualityListener;
     private InnerAudioVisualization.CalmDownListener calmDownListener;
+    private FrameScheduler frameScheduler;
+    private RenderScaler renderScaler;
     boolean bgUpdated;
 
 	public GLRenderer(@NonNull Context context, GLAudioVisualizationView.Configuration configuration) {
+		this(configuration, context.getResources().getDisplayMetrics().heightPixels, AndroidGLApi.INSTANCE);
+	}
+
+	/**
+	 * Create renderer with custom OpenGL calls implementation.
+	 * @param height height of screen in pixels
+	 * @param gl OpenGL calls implementation, for example recording one in unit tests
+	 */
+	GLRenderer(GLAudioVisualizationView.Configuration configuration, float height, @NonNull GLApi gl) {
+		this(configuration, height, new GLResources(gl), false);
+	}
+
+	/**
+	 * Create renderer drawing in context shared with other renderers. Programs are taken from shared registry,
+	 * viewport and clear color are set for every frame since other renderers change them.
+	 * @param height height of screen in pixels
+	 * @param sharedResources registry of shared context
+	 */
+	GLRenderer(GLAudioVisualizationView.Configuration configuration, float height, @NonNull GLResources sharedResources) {
+		this(configuration, height, new GLResources(sharedResources), true);
+	}
+
+	private GLRenderer(GLAudioVisualizationView.Configuration configuration, float height, GLResources resources, boolean sharedContext) {
 		this.configuration = configuration;
-		this.random = new Random();
-		startTime = System.currentTimeMillis();
-		height = context.getResources().getDisplayMetrics().heightPixels;
+		this.gl = resources.getApi();
+		this.resources = resources;
+		this.sharedContext = sharedContext;
+		this.height = height;
+		this.qualityGovernor = configuration.qualitySignalSource != null
+				? new QualityGovernor(configuration.maxFps, configuration.qualitySignalSource)
+				: null;
+		// cheapest reductions go first, every step settles before next one is considered
+		this.loadController = configuration.adaptiveLod || configuration.adaptiveRenderScale || qualityGovernor != null
+				? new FrameLoadController(configuration.maxFps, new LodControl(), new ScaleControl(), new TierControl())
+				: null;
 	}
 
     public GLRenderer calmDownListener(InnerAudioVisualization.CalmDownListener calmDownListener) {
@@ -38,50 +86,244 @@ class GLRenderer implements GLAudioVisualizationView.AudioVisualizationRenderer
         return this;
     }
 
+    /**
+     * Set scheduler providing vsync timestamps of frames.
+     */
+    public GLRenderer frameScheduler(FrameScheduler frameScheduler) {
+        this.frameScheduler = frameScheduler;
+        return this;
+    }
+
+    /**
+     * Set scaler adjusting render resolution from frame times.
+     */
+    public GLRenderer renderScaler(RenderScaler renderScaler) {
+        this.renderScaler = renderScaler;
+        return this;
+    }
+
+    /**
+     * Set listener notified on GL thread when quality tier changes.
+     */
+    public GLRenderer qualityListener(QualityGovernor.Listener qualityListener) {
+        this.qualityListener = qualityListener;
+        return this;
+    }
+
     @Override
 	public void onSurfaceCreated(GL10 gl, EGLConfig config) {
 		float[] backgroundColor = configuration.backgroundColor;
-		GLES20.glClearColor(backgroundColor[0], backgroundColor[1], backgroundColor[2], backgroundColor[3]);
-		layers = new GLWaveLayer[configuration.layersCount];
-		float layerHeightPerc = (configuration.footerHeight + configuration.waveHeight) / height;
-		float waveHeightPerc = configuration.waveHeight / height * 2;
-		for (int i = 0; i < layers.length; i++) {
-			int reverseI = layers.length - i - 1;
-			float fromY = -1 + reverseI * waveHeightPerc * 2;
-			float toY = fromY + layerHeightPerc * 2;
-			layers[i] = new GLWaveLayer(configuration, configuration.layerColors[i], fromY, toY, random);
+		this.gl.glClearColor(backgroundColor[0], backgroundColor[1], backgroundColor[2], backgroundColor[3]);
+		clearMask = getClearMask();
+		hasLastFrame = false;
+		// objects of previous context were freed together with it
+		resources.onContextLost();
+		createSceneRenderer();
+	}
+
+	/**
+	 * Create scene renderer and its OpenGL objects in current context.
+	 */
+	private void createSceneRenderer() {
+		// front-to-back drawing relies on stencil, surface may lack it if device has no such config
+		boolean overdrawReduction = configuration.overdrawReduction && (clearMask & GLES20.GL_STENCIL_BUFFER_BIT) != 0;
+		SceneModel scene = null;
+		sceneRenderer = null;
+		if (isOpenGlEs3()) {
+			GLSceneRenderer renderer = new GLInstancedRenderer(resources, arena, configuration, overdrawReduction);
+			scene = obtainScene(renderer.getOutputs());
+			if (renderer.init(scene)) {
+				sceneRenderer = renderer;
+			} else {
+				resources.release();
+			}
+		}
+		if (sceneRenderer == null) {
+			GLSceneRenderer renderer = new GLLayersRenderer(resources, arena, configuration, overdrawReduction);
+			scene = obtainScene(renderer.getOutputs());
+			renderer.init(scene);
+			sceneRenderer = renderer;
+		}
+		this.scene = scene;
+		updateLevelOfDetail();
+		updateBubblesLimit();
+	}
+
+	/**
+	 * Get scene for new surface. Scene of lost surface is reused if it produces outputs renderer needs, so waves and
+	 * bubbles continue from where they stopped and only GL resources are recreated.
+	 * @param outputs outputs required by renderer
+	 */
+	private SceneModel obtainScene(int outputs) {
+		SceneModel scene = this.scene;
+		if (scene != null && scene.getOutputs() == outputs) {
+			return scene;
 		}
+		return new SceneModel(configuration, height, createRandom(), outputs);
+	}
+
+	/**
+	 * Create random generator for new scene. Seeded generator is recreated for every scene, so new scene
+	 * starts the same sequence again.
+	 */
+	private Random createRandom() {
+		return configuration.hasRandomSeed ? new Random(configuration.randomSeed) : new Random();
+	}
+
+	/**
+	 * Get buffers to clear every frame. Nothing uses depth and only overdraw reduction uses stencil, but if surface has
+	 * them, clearing lets tiled GPUs skip loading their previous contents.
+	 */
+	private int getClearMask() {
+		int[] bits = new int[1];
+		int mask = GLES20.GL_COLOR_BUFFER_BIT;
+		gl.glGetIntegerv(GLES20.GL_DEPTH_BITS, bits, 0);
+		if (bits[0] > 0) {
+			mask |= GLES20.GL_DEPTH_BUFFER_BIT;
+		}
+		gl.glGetIntegerv(GLES20.GL_STENCIL_BITS, bits, 0);
+		if (bits[0] > 0) {
+			mask |= GLES20.GL_STENCIL_BUFFER_BIT;
+		}
+		return mask;
+	}
+
+	/**
+	 * Check if current context supports OpenGL ES 3.0.
+	 */
+	private boolean isOpenGlEs3() {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			return false;
+		}
+		String version = gl.glGetString(GLES20.GL_VERSION);
+		return version != null && version.startsWith("OpenGL ES ") && !version.startsWith("OpenGL ES 2");
 	}
 
 	@Override
 	public void onSurfaceChanged(GL10 gl, int width, int height) {
-		GLES20.glViewport(0, 0, width, height);
+		this.gl.glViewport(0, 0, width, height);
+		viewportWidth = width;
+		viewportHeight = height;
 		ratioY = (float) width / height;
+		if (sceneRenderer != null) {
+			sceneRenderer.onSurfaceChanged(width, height);
+		}
+		// whole viewport is 2 units wide, every wave covers its part of width and rises up to wave height
+		waveLevel = LevelOfDetail.forLength((float) width / configuration.wavesCount + configuration.waveHeight * 2);
+		float maxBubbleSize = configuration.bubbleSize * (configuration.randomizeBubbleSize ? 1.3f : 1f);
+		bubbleLevel = LevelOfDetail.forLength((float) Math.PI * maxBubbleSize * width / 2);
+		// bias is relative to levels of new size, so it's kept even if size was changed by render scaler
+		if (loadController != null) {
+			loadController.reset();
+		}
+		updateLevelOfDetail();
+	}
+
+	private void updateLevelOfDetail() {
+		SceneModel scene = this.scene;
+		if (scene != null) {
+			int bias = lodBias + (qualityGovernor != null ? qualityGovernor.getLodBias() : 0);
+			scene.setLevelOfDetail(LevelOfDetail.lower(waveLevel, bias), LevelOfDetail.lower(bubbleLevel, bias));
+		}
+	}
+
+	private void updateBubblesLimit() {
+		SceneModel scene = this.scene;
+		if (scene != null && qualityGovernor != null) {
+			scene.setBubblesLimit(qualityGovernor.getBubblesLimit(configuration.bubblesPerLayer));
+		}
+	}
+
+	/**
+	 * Apply reductions of current quality tier.
+	 */
+	private void onQualityTierChanged() {
+		if (frameScheduler != null) {
+			frameScheduler.setMaxFps(qualityGovernor.getMaxFps());
+		}
+		loadController.setMaxFps(qualityGovernor.getMaxFps());
+		updateLevelOfDetail();
+		updateBubblesLimit();
+		if (qualityListener != null) {
+			qualityListener.onQualityTierChanged(qualityGovernor.getTier());
+		}
+	}
+
+	@Override
+	public void setRenderScale(float scale) {
+		if (renderScaler != null) {
+			renderScaler.setScale(scale);
+		}
+	}
+
+	@Override
+	public float getRenderScale() {
+		return renderScaler != null ? renderScaler.getScale() : Constants.MAX_RENDER_SCALE;
+	}
+
+	@Override
+	public void release() {
+		sceneRenderer = null;
+		resources.release();
+	}
+
+	@Override
+	public int getGLObjectsCount() {
+		return resources.getCount();
+	}
+
+	@Override
+	public int getNativeMemoryUsage() {
+		return arena.getBytesInUse();
+	}
+
+	@Override
+	public int getQualityTier() {
+		return qualityGovernor != null ? qualityGovernor.getTier() : GLAudioVisualizationView.QUALITY_TIER_FULL;
 	}
 
 	@Override
 	public void onDrawFrame(GL10 gl) {
-        if (bgUpdated) {
+		drawFrame(frameScheduler != null ? frameScheduler.getFrameTimeNanos() : System.nanoTime());
+	}
+
+	/**
+	 * Advance scene to specified time and draw it.
+	 * @param frameTimeNanos time of frame in nanoseconds from monotonic clock
+	 */
+	void drawFrame(long frameTimeNanos) {
+        if (bgUpdated || sharedContext) {
             float[] backgroundColor = configuration.backgroundColor;
-            GLES20.glClearColor(backgroundColor[0], backgroundColor[1], backgroundColor[2], backgroundColor[3]);
+            this.gl.glClearColor(backgroundColor[0], backgroundColor[1], backgroundColor[2], backgroundColor[3]);
             bgUpdated = false;
-        } else {
-            GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
         }
-		long endTime = System.currentTimeMillis();
-		long dt = endTime - startTime;
-		startTime = endTime;
-		int i = 0;
-        boolean isCalmedDown = true;
-		for (GLWaveLayer layer : layers) {
-			// slow down speed of wave from top to bottom of screen
-			float speedCoef = (1 - 1f * i / (layers.length) * 0.8f);
-			layer.update(dt, D_ANGLE * speedCoef, ratioY);
-            isCalmedDown &= layer.isCalmedDown();
-			i++;
-		}
-		for (GLWaveLayer layer : layers) {
-			layer.draw();
+        if (sharedContext) {
+            this.gl.glViewport(0, 0, viewportWidth, viewportHeight);
+        }
+        this.gl.glClear(clearMask);
+		float dt = hasLastFrame ? (frameTimeNanos - lastFrameTime) / 1000000f : 0;
+		lastFrameTime = frameTimeNanos;
+		hasLastFrame = true;
+		SceneModel scene = this.scene;
+		if (scene == null) {
+			return;
+		}
+		if (sceneRenderer == null) {
+			// renderer was released, but context is kept, so view is still drawn
+			createSceneRenderer();
+			sceneRenderer.onSurfaceChanged(viewportWidth, viewportHeight);
+			scene = this.scene;
+		}
+		if (qualityGovernor != null && qualityGovernor.onFrame(frameTimeNanos)) {
+			onQualityTierChanged();
+		}
+		if (loadController != null) {
+			loadController.onFrame(frameTimeNanos);
+		}
+		boolean isCalmedDown = scene.update(dt, ratioY);
+		sceneRenderer.draw(scene, ratioY);
+		if (frameScheduler != null) {
+			frameScheduler.setAnimating(scene.isAnimating());
 		}
         if (isCalmedDown && calmDownListener != null) {
             calmDownListener.onCalmedDown();
@@ -89,26 +331,31 @@ class GLRenderer implements GLAudioVisualizationView.AudioVisualizationRenderer
 	}
 
     public final void onDataReceived(float[] dBmArray, float[] ampsArray) {
-        if (layers == null)
+        SceneModel scene = this.scene;
+        if (scene == null)
             return;
-        for (int i = 0; i < layers.length; i++) {
-            if (layers[i] == null)
-                return;
-            layers[i].updateData(dBmArray[i], ampsArray[i]);
-        }
+        scene.onDataReceived(dBmArray, ampsArray);
     }
 
 	/**
 	 * Utility method for compiling a OpenGL shader.
 	 *
+	 * @param gl         - OpenGL calls implementation.
 	 * @param type       - Vertex or fragment shader type.
 	 * @param shaderCode - String containing the shader code.
-	 * @return - Returns an id for the shader.
+	 * @return - Returns an id for the shader or 0 if it failed to compile.
 	 */
-	public static int loadShader(int type, String shaderCode) {
-		int shader = GLES20.glCreateShader(type);
-		GLES20.glShaderSource(shader, shaderCode);
-		GLES20.glCompileShader(shader);
+	public static int loadShader(GLApi gl, int type, String shaderCode) {
+		int shader = gl.glCreateShader(type);
+		gl.glShaderSource(shader, shaderCode);
+		gl.glCompileShader(shader);
+		int[] status = new int[1];
+		gl.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+		if (status[0] != GLES20.GL_TRUE) {
+			Log.e(TAG, "Failed to compile shader: " + gl.glGetShaderInfoLog(shader));
+			gl.glDeleteShader(shader);
+			return 0;
+		}
 		return shader;
 	}
 
@@ -123,11 +370,77 @@ class GLRenderer implements GLAudioVisualizationView.AudioVisualizationRenderer
         if (bgUpdated) {
             configuration.backgroundColor = builder.backgroundColor();
         }
-        if (layers == null)
+        // kept for scene created on next surface
+        configuration.layerColors = builder.layerColors();
+        SceneModel scene = this.scene;
+        if (scene == null)
             return;
-        float[][] colors = builder.layerColors();
-        for (int i = 0; i < layers.length; i++) {
-            layers[i].setColor(colors[i]);
-        }
+        scene.setColors(configuration.layerColors);
     }
-}
\ No newline at end of file
+
+	/**
+	 * Level of detail lowered below the one chosen for surface size.
+	 */
+	private class LodControl implements FrameLoadController.Control {
+
+		@Override
+		public boolean reduce() {
+			if (!configuration.adaptiveLod || lodBias >= LevelOfDetail.COARSEST) {
+				return false;
+			}
+			lodBias++;
+			updateLevelOfDetail();
+			return true;
+		}
+
+		@Override
+		public boolean restore() {
+			if (lodBias == 0) {
+				return false;
+			}
+			lodBias--;
+			updateLevelOfDetail();
+			return true;
+		}
+	}
+
+	/**
+	 * Render resolution, see {@link RenderScaler}.
+	 */
+	private class ScaleControl implements FrameLoadController.Control {
+
+		@Override
+		public boolean reduce() {
+			return renderScaler != null && renderScaler.reduce();
+		}
+
+		@Override
+		public boolean restore() {
+			return renderScaler != null && renderScaler.restore();
+		}
+	}
+
+	/**
+	 * Quality tier, see {@link QualityGovernor}.
+	 */
+	private class TierControl implements FrameLoadController.Control {
+
+		@Override
+		public boolean reduce() {
+			if (qualityGovernor == null || !qualityGovernor.raiseLoadTier()) {
+				return false;
+			}
+			onQualityTierChanged();
+			return true;
+		}
+
+		@Override
+		public boolean restore() {
+			if (qualityGovernor == null || !qualityGovernor.lowerLoadTier()) {
+				return false;
+			}
+			onQualityTierChanged();
+			return true;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package com.cleveroad.audiovisualization;
+
+import android.opengl.GLES20;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of OpenGL objects created in current context: shaders, programs, buffers and vertex arrays.
+ * Everything is deleted at once on {@link #release()}. When context is lost, objects are freed by driver together
+ * with it, so registry just forgets them. Programs are shared by shapes using the same shaders and shaders are
+ * deleted right after linking. Renderers drawing in one context can take programs from a shared registry, while
+ * buffers and vertex arrays stay in their own. All methods except {@link #getCount()} must be called on GL thread.
+ */
+class GLResources {
+
+	private static final String TAG = "GLResources";
+
+	private final GLApi gl;
+	private final GLResources shared;
+	private final List<Integer> shaders = new ArrayList<>();
+	private final List<Integer> programs = new ArrayList<>();
+	private final List<Integer> buffers = new ArrayList<>();
+	private final List<Integer> vertexArrays = new ArrayList<>();
+	private final Map<String, Integer> programsBySource = new HashMap<>();
+	private volatile int count;
+
+	public GLResources(GLApi gl) {
+		this.gl = gl;
+		this.shared = null;
+	}
+
+	/**
+	 * Create registry taking programs from shared one. Programs stay alive until shared registry is released.
+	 * @param shared registry of context
+	 */
+	public GLResources(GLResources shared) {
+		this.gl = shared.gl;
+		this.shared = shared;
+	}
+
+	/**
+	 * Get OpenGL calls implementation objects are created with.
+	 */
+	public GLApi getApi() {
+		return gl;
+	}
+
+	/**
+	 * Get program with specified shaders, compiling and linking it if there's no such program yet. Failures are
+	 * logged and not remembered, so next call tries again.
+	 * @return program or 0 if shaders failed to compile or program failed to link
+	 */
+	public int getProgram(String vertexShaderCode, String fragmentShaderCode) {
+		if (shared != null) {
+			return shared.getProgram(vertexShaderCode, fragmentShaderCode);
+		}
+		String key = vertexShaderCode + '\n' + fragmentShaderCode;
+		Integer program = programsBySource.get(key);
+		if (program == null) {
+			program = createProgram(vertexShaderCode, fragmentShaderCode);
+			if (program != 0) {
+				programsBySource.put(key, program);
+			}
+		}
+		return program;
+	}
+
+	private int createProgram(String vertexShaderCode, String fragmentShaderCode) {
+		int vertexShader = createShader(GLES20.GL_VERTEX_SHADER, vertexShaderCode);
+		if (vertexShader == 0) {
+			return 0;
+		}
+		int fragmentShader = createShader(GLES20.GL_FRAGMENT_SHADER, fragmentShaderCode);
+		if (fragmentShader == 0) {
+			deleteShader(vertexShader);
+			return 0;
+		}
+		int program = gl.glCreateProgram();
+		gl.glAttachShader(program, vertexShader);
+		gl.glAttachShader(program, fragmentShader);
+		gl.glLinkProgram(program);
+		// linked program keeps compiled code, shader objects are no longer needed
+		gl.glDetachShader(program, vertexShader);
+		gl.glDetachShader(program, fragmentShader);
+		deleteShader(vertexShader);
+		deleteShader(fragmentShader);
+		int[] status = new int[1];
+		gl.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+		if (status[0] != GLES20.GL_TRUE) {
+			Log.e(TAG, "Failed to link program: " + gl.glGetProgramInfoLog(program));
+			gl.glDeleteProgram(program);
+			return 0;
+		}
+		add(programs, program);
+		return program;
+	}
+
+	private int createShader(int type, String shaderCode) {
+		int shader = GLRenderer.loadShader(gl, type, shaderCode);
+		if (shader != 0) {
+			add(shaders, shader);
+		}
+		return shader;
+	}
+
+	private void deleteShader(int shader) {
+		gl.glDeleteShader(shader);
+		shaders.remove(Integer.valueOf(shader));
+		count--;
+	}
+
+	/**
+	 * Generate buffer objects.
+	 */
+	public void genBuffers(int n, int[] names, int offset) {
+		gl.glGenBuffers(n, names, offset);
+		for (int i = 0; i < n; i++) {
+			add(buffers, names[offset + i]);
+		}
+	}
+
+	/**
+	 * Generate vertex array objects. Needs OpenGL ES 3.0 context.
+	 */
+	public void genVertexArrays(int n, int[] names, int offset) {
+		gl.glGenVertexArrays(n, names, offset);
+		for (int i = 0; i < n; i++) {
+			add(vertexArrays, names[offset + i]);
+		}
+	}
+
+	private void add(List<Integer> names, int name) {
+		names.add(name);
+		count++;
+	}
+
+	/**
+	 * Delete all objects. Context they were created in must be current.
+	 */
+	public void release() {
+		if (!vertexArrays.isEmpty()) {
+			gl.glDeleteVertexArrays(vertexArrays.size(), toArray(vertexArrays), 0);
+		}
+		if (!buffers.isEmpty()) {
+			gl.glDeleteBuffers(buffers.size(), toArray(buffers), 0);
+		}
+		for (int program : programs) {
+			gl.glDeleteProgram(program);
+		}
+		for (int shader : shaders) {
+			gl.glDeleteShader(shader);
+		}
+		onContextLost();
+	}
+
+	/**
+	 * Forget all objects without deleting them, they were freed together with lost context.
+	 */
+	public void onContextLost() {
+		shaders.clear();
+		programs.clear();
+		buffers.clear();
+		vertexArrays.clear();
+		programsBySource.clear();
+		count = 0;
+	}
+
+	/**
+	 * Get number of objects alive, not counting ones of shared registry. Can be called from any thread.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	private static int[] toArray(List<Integer> names) {
+		int[] array = new int[names.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = names.get(i);
+		}
+		return array;
+	}
+}
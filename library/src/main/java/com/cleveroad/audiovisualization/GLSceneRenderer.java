@@ -0,0 +1,40 @@
+package com.cleveroad.audiovisualization;
+
+/**
+ * Draws {@link SceneModel} with OpenGL. All methods must be called on GL thread.
+ */
+interface GLSceneRenderer {
+
+	/**
+	 * Stencil bits used for overdraw reduction. Pixels covered by layer with index i get value i + 1.
+	 */
+	int STENCIL_MASK = 0xFF;
+
+	/**
+	 * Get outputs scene must produce for this renderer.
+	 * @return combination of {@link LayerModel#OUTPUT_MESH} and {@link LayerModel#OUTPUT_BUBBLE_MESH} flags
+	 */
+	int getOutputs();
+
+	/**
+	 * Compile programs and create buffers for drawing scene. Objects are created through {@link GLResources}, so
+	 * they are deleted by its owner.
+	 * @param scene scene to draw
+	 * @return true if renderer is ready for drawing, false otherwise
+	 */
+	boolean init(SceneModel scene);
+
+	/**
+	 * Update size of viewport.
+	 * @param width viewport width in pixels
+	 * @param height viewport height in pixels
+	 */
+	void onSurfaceChanged(int width, int height);
+
+	/**
+	 * Draw scene.
+	 * @param scene scene to draw
+	 * @param ratioY aspect ratio for Y coordinates
+	 */
+	void draw(SceneModel scene, float ratioY);
+}
@@ -1,7 +1,5 @@
 package com.cleveroad.audiovisualization;
 
-import android.opengl.GLES20;
-
 /**
  * Abstract shape implementation.
  */
@@ -9,50 +7,55 @@ abstract class GLShape {
 
 	protected static final String VERTEX_POSITION = "vPosition";
 	protected static final String VERTEX_COLOR = "vColor";
-	private static final String VERTEX_SHADER_CODE =
-			"attribute vec4 " + VERTEX_POSITION + ";" +
-					"void main() {" +
-					"  gl_Position = " + VERTEX_POSITION + ";" +
-					"}";
 	private static final String FRAGMENT_SHADER_CODE =
 			"precision mediump float;" +
 					"uniform vec4 " + VERTEX_COLOR + ";" +
 					"void main() {" +
 					"  gl_FragColor = " + VERTEX_COLOR + ";" +
 					"}";
-	protected static final int COORDS_PER_VERTEX = 3;
+	protected static final int COORDS_PER_VERTEX = SceneModel.COORDS_PER_VERTEX;
 	protected static final int SIZE_OF_FLOAT = 4;
 	protected static final int SIZE_OF_SHORT = 2;
 
+	protected final GLApi gl;
+	private final GLResources resources;
+	private final String vertexShaderCode;
+	private final String fragmentShaderCode;
+
 	/**
-	 * Shape color.
+	 * Program associated with shape. Obtained on first draw, so shapes that are never drawn don't compile shaders.
 	 */
-	private final float color[];
+	private int program;
+	private boolean hasProgram;
 
 	/**
-	 * Program associated with shape.
+	 * Create shape filled with single color.
+	 * @param compact true if positions are compact coordinates, see {@link GLVertexArray}
 	 */
-	private final int program;
-
-	public GLShape(float[] color) {
-		this.color = color;
-		int vertexShader = GLRenderer.loadShader(GLES20.GL_VERTEX_SHADER, VERTEX_SHADER_CODE);
-		int fragmentShader = GLRenderer.loadShader(GLES20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER_CODE);
-		program = GLES20.glCreateProgram();
-		GLES20.glAttachShader(program, vertexShader);
-		GLES20.glAttachShader(program, fragmentShader);
-		GLES20.glLinkProgram(program);
+	public GLShape(GLResources resources, boolean compact) {
+		this(resources, getVertexShaderCode(compact), FRAGMENT_SHADER_CODE);
 	}
 
-	protected float[] getColor() {
-		return color;
+	protected GLShape(GLResources resources, String vertexShaderCode, String fragmentShaderCode) {
+		this.gl = resources.getApi();
+		this.resources = resources;
+		this.vertexShaderCode = vertexShaderCode;
+		this.fragmentShaderCode = fragmentShaderCode;
+	}
+
+	private static String getVertexShaderCode(boolean compact) {
+		return "attribute vec4 " + VERTEX_POSITION + ";" +
+				"void main() {" +
+				"  gl_Position = vec4(" + GLVertexArray.position(VERTEX_POSITION, compact) + ".xy, 0.0, 1.0);" +
+				"}";
 	}
 
 	protected int getProgram() {
+		if (!hasProgram) {
+			// failed program is 0, it's not compiled again every frame
+			program = resources.getProgram(vertexShaderCode, fragmentShaderCode);
+			hasProgram = true;
+		}
 		return program;
 	}
-
-    public void setColor(float[] color) {
-        System.arraycopy(color, 0, this.color, 0, this.color.length);
-    }
 }
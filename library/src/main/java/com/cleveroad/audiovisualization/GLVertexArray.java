@@ -0,0 +1,82 @@
+package com.cleveroad.audiovisualization;
+
+import android.opengl.GLES20;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Client-side vertex array holding floats or compact coordinates: normalized shorts, half of the size. Compact
+ * coordinates cover [-{@link #COMPACT_RANGE}, {@link #COMPACT_RANGE}], values out of range are clamped.
+ */
+class GLVertexArray {
+
+	/**
+	 * Range of compact coordinates. Normalized shorts cover [-1, 1], but shapes sticking out of viewport need
+	 * a wider range, so coordinates are divided by this value and multiplied back in vertex shader.
+	 */
+	static final float COMPACT_RANGE = 2;
+
+	private static final float COMPACT_SCALE = Short.MAX_VALUE / COMPACT_RANGE;
+
+	private final int size;
+	private final FloatBuffer floatBuffer;
+	private final ShortBuffer shortBuffer;
+
+	/**
+	 * Get size of arena region taken by array.
+	 * @param capacity number of values
+	 * @param compact true for compact coordinates
+	 */
+	static int getArenaSize(int capacity, boolean compact) {
+		return compact ? NativeArena.sizeOfShorts(capacity) : NativeArena.sizeOfFloats(capacity);
+	}
+
+	/**
+	 * Get shader expression for position attribute with compact coordinates scaled back, its components must be
+	 * accessed with swizzles.
+	 * @param attribute name of attribute
+	 * @param compact true for compact coordinates
+	 */
+	static String position(String attribute, boolean compact) {
+		return compact ? "(" + attribute + " * " + COMPACT_RANGE + ")" : attribute;
+	}
+
+	/**
+	 * @param arena arena to take memory from
+	 * @param capacity number of values
+	 * @param size number of values per vertex
+	 * @param compact true for compact coordinates
+	 */
+	public GLVertexArray(NativeArena arena, int capacity, int size, boolean compact) {
+		this.size = size;
+		if (compact) {
+			floatBuffer = null;
+			shortBuffer = arena.allocateShorts(capacity);
+		} else {
+			floatBuffer = arena.allocateFloats(capacity);
+			shortBuffer = null;
+		}
+	}
+
+	/**
+	 * Copy values and point attribute to them.
+	 * @param handle attribute location
+	 * @param values values of vertices
+	 * @param count number of values to copy
+	 */
+	public void set(GLApi gl, int handle, float[] values, int count) {
+		if (shortBuffer == null) {
+			floatBuffer.put(values, 0, count);
+			floatBuffer.position(0);
+			gl.glVertexAttribPointer(handle, size, GLES20.GL_FLOAT, false, size * GLShape.SIZE_OF_FLOAT, floatBuffer);
+			return;
+		}
+		// values are truncated, error is below one step of compact coordinates
+		for (int i = 0; i < count; i++) {
+			float value = values[i] * COMPACT_SCALE;
+			shortBuffer.put(i, (short) Math.max(Math.min(value, Short.MAX_VALUE), -Short.MAX_VALUE));
+		}
+		gl.glVertexAttribPointer(handle, size, GLES20.GL_SHORT, true, size * GLShape.SIZE_OF_SHORT, shortBuffer);
+	}
+}
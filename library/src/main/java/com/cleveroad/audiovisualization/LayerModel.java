@@ -0,0 +1,454 @@
+package com.cleveroad.audiovisualization;
+
+import java.util.Random;
+
+/**
+ * Simulation of wave layer: footer, waves and bubbles. {@link #step(float, float)} advances simulation,
+ * {@link #write(float, float)} produces data for drawing into preallocated arrays. Doesn't depend on OpenGL.
+ */
+class LayerModel {
+
+	/**
+	 * Produce triangle mesh of footer and waves, see {@link #getMeshVertices()}.
+	 */
+	public static final int OUTPUT_MESH = 1;
+
+	/**
+	 * Produce triangle mesh of bubbles, see {@link #getBubbleVertices()}.
+	 */
+	public static final int OUTPUT_BUBBLE_MESH = 1 << 1;
+
+	/**
+	 * Number of floats describing single bubble instance: center, size and alpha.
+	 */
+	public static final int FLOATS_PER_BUBBLE = 4;
+
+	/**
+	 * Maximum number of points for drawing bubble's circle, actual number depends on level of detail.
+	 */
+	static final int POINTS_PER_CIRCLE = LevelOfDetail.MAX_SEGMENTS;
+
+	/**
+	 * Number of vertices reserved for single bubble: center and circle.
+	 */
+	static final int VERTICES_PER_BUBBLE = POINTS_PER_CIRCLE + 1;
+
+	/**
+	 * Number of floats per vertex of bubbles mesh: position and alpha.
+	 */
+	static final int FLOATS_PER_BUBBLE_VERTEX = 3;
+
+	private static final int FOOTER_VERTICES = 4;
+	private static final int FOOTER_INDICES = 6;
+	private static final short[] FOOTER_INDICES_TEMPLATE = {0, 1, 2, 0, 2, 3};
+	private static final int COORDS_PER_VERTEX = SceneModel.COORDS_PER_VERTEX;
+
+	/**
+	 * Unit circle templates (radius 0.5) for every level of detail shared by all bubbles. Every bubble is this circle
+	 * scaled by its size and translated to its center, so no trigonometry is needed per frame.
+	 */
+	private static final float[][] UNIT_CIRCLE_X = new float[LevelOfDetail.LEVELS][];
+	private static final float[][] UNIT_CIRCLE_Y = new float[LevelOfDetail.LEVELS][];
+
+	static {
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			int points = LevelOfDetail.SEGMENTS[level];
+			UNIT_CIRCLE_X[level] = new float[points];
+			UNIT_CIRCLE_Y[level] = new float[points];
+			double step = 2 * Math.PI / points;
+			for (int i = 0; i < points; i++) {
+				UNIT_CIRCLE_X[level][i] = (float) (Math.sin(-Math.PI + step * (i + 1)) / 2);
+				UNIT_CIRCLE_Y[level][i] = (float) (Math.cos(-Math.PI + step * (i + 1)) / 2);
+			}
+		}
+	}
+
+	private final GLAudioVisualizationView.Configuration configuration;
+	private final WavesModel waves;
+	private final BubblePool bubblePool;
+	private final Random random;
+	private final float[] color;
+	private final float fromY;
+	private final float footerToY;
+	private final float bubbleFromY;
+	private final float bubbleToY;
+	private final int outputs;
+	private float amplitude;
+
+	private final float[] meshVertices;
+	private final short[][] meshIndices;
+	private final float[] waveInstances;
+	private final float[] bubbleInstances;
+	private final float[] bubbleVertices;
+	private final short[][] bubbleIndices;
+	private int bubblesLimit;
+	private int waveLevel = LevelOfDetail.FINEST;
+	private int bubbleLevel = LevelOfDetail.FINEST;
+
+	/**
+	 * Create new wave layer.
+	 * @param outputs combination of {@link #OUTPUT_MESH} and {@link #OUTPUT_BUBBLE_MESH} flags. Instances of waves
+	 *                and bubbles are produced always.
+	 */
+	public LayerModel(GLAudioVisualizationView.Configuration configuration, float[] color, float fromY, float toY, Random random, int outputs) {
+		this.configuration = configuration;
+		this.random = random;
+		this.outputs = outputs;
+		this.color = new float[color.length];
+		System.arraycopy(color, 0, this.color, 0, color.length);
+		this.fromY = fromY;
+		this.footerToY = fromY + configuration.footerHeight / (configuration.footerHeight + configuration.waveHeight * 2) * (toY - fromY);
+		float waveWidth = 2f / configuration.wavesCount;
+		float[] points = randomPoints(this.random, configuration.wavesCount, waveWidth, 0.15f);
+		this.bubbleFromY = footerToY;
+		this.bubbleToY = toY;
+		this.waves = new WavesModel(points, footerToY, toY, random);
+		BubbleModel[] bubbles = new BubbleModel[configuration.bubblesPerLayer];
+		for (int i = 0; i < bubbles.length; i++) {
+			bubbles[i] = new BubbleModel(random);
+		}
+		this.bubblePool = new BubblePool(bubbles);
+		this.bubblesLimit = bubbles.length;
+
+		// footer and waves as instances of the same curve
+		waveInstances = new float[(waves.getCount() + 1) * WavesModel.FLOATS_PER_INSTANCE];
+		bubbleInstances = new float[bubbles.length * FLOATS_PER_BUBBLE];
+		if ((outputs & OUTPUT_MESH) != 0) {
+			meshVertices = new float[(FOOTER_VERTICES + waves.getVerticesCount()) * COORDS_PER_VERTEX];
+			meshIndices = new short[LevelOfDetail.LEVELS][];
+			initFooterMesh();
+			waves.writeVertices(meshVertices, FOOTER_VERTICES);
+			for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+				meshIndices[level] = new short[FOOTER_INDICES + waves.getIndicesCount(level)];
+				System.arraycopy(FOOTER_INDICES_TEMPLATE, 0, meshIndices[level], 0, FOOTER_INDICES);
+				waves.writeIndices(meshIndices[level], FOOTER_INDICES, FOOTER_VERTICES, level);
+			}
+		} else {
+			meshVertices = null;
+			meshIndices = null;
+		}
+		if ((outputs & OUTPUT_BUBBLE_MESH) != 0) {
+			bubbleVertices = new float[bubbles.length * VERTICES_PER_BUBBLE * FLOATS_PER_BUBBLE_VERTEX];
+			bubbleIndices = new short[LevelOfDetail.LEVELS][];
+			for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+				bubbleIndices[level] = createBubbleIndices(bubbles.length, level);
+			}
+		} else {
+			bubbleVertices = null;
+			bubbleIndices = null;
+		}
+	}
+
+	private void initFooterMesh() {
+		final float[] vertices = {
+				-1, footerToY,
+				-1, fromY,
+				1, fromY,
+				1, footerToY
+		};
+		System.arraycopy(vertices, 0, meshVertices, 0, vertices.length);
+	}
+
+	private static short[] createBubbleIndices(int capacity, int level) {
+		int points = LevelOfDetail.SEGMENTS[level];
+		short[] indices = new short[capacity * getIndicesPerBubble(level)];
+		int offset = 0;
+		for (int bubble = 0; bubble < capacity; bubble++) {
+			int center = bubble * VERTICES_PER_BUBBLE;
+			// triangle fan around center point, last triangle connects last and first points of circle
+			for (int i = 0; i < points; i++) {
+				indices[offset++] = (short) center;
+				indices[offset++] = (short) (center + 1 + i);
+				indices[offset++] = (short) (center + 1 + (i + 1) % points);
+			}
+		}
+		return indices;
+	}
+
+	/**
+	 * Get number of indices of single bubble.
+	 * @param level level of detail
+	 */
+	static int getIndicesPerBubble(int level) {
+		return LevelOfDetail.SEGMENTS[level] * 3;
+	}
+
+	/**
+	 * Generate random points for wave.
+	 * @param random instance of Random
+	 * @param wavesCount number of waves
+	 * @param width width of single wave
+	 * @param shiftCoef shift coefficient
+	 * @return generated points for waves
+	 */
+	private static float[] randomPoints(Random random, int wavesCount, float width, float shiftCoef) {
+		float shift;
+		float[] points = new float[wavesCount + 1];
+		for (int i = 0; i < points.length; i++) {
+			if (i == 0) {
+				points[i] = -1;
+			} else if (i == points.length - 1) {
+				points[i] = 1;
+			} else {
+				shift = random.nextFloat() * shiftCoef * width;
+				shift *= random.nextBoolean() ? 1 : -1;
+				points[i] = -1 + i * width + shift;
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * Update waves and bubbles positions.
+	 * @param dt time elapsed from last step in milliseconds
+	 * @param dAngle delta angle
+	 */
+	public void step(float dt, float dAngle) {
+		waves.update(dt * dAngle);
+		spawnBubbles();
+		int i = 0;
+		while (i < bubblePool.size()) {
+			BubbleModel bubble = bubblePool.get(i);
+			bubble.update(dt);
+			if (bubble.isOffScreen()) {
+				bubblePool.recycle(i);
+			} else {
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Produce data for drawing.
+	 * @param interpolation interpolation factor between previous and current step in range [0..1]
+	 * @param ratioY aspect ratio for Y coordinates
+	 */
+	public void write(float interpolation, float ratioY) {
+		writeWaveInstances(interpolation);
+		writeBubbleInstances(interpolation);
+		if (meshVertices != null) {
+			waves.writeCurves(meshVertices, FOOTER_VERTICES, interpolation, waveLevel);
+		}
+		if (bubbleVertices != null) {
+			writeBubbleVertices(interpolation, ratioY);
+		}
+	}
+
+	private void writeWaveInstances(float interpolation) {
+		// footer is a flat "wave" from footer's top down to bottom of layer
+		waveInstances[0] = -1;
+		waveInstances[1] = footerToY;
+		waveInstances[2] = 0;
+		waveInstances[3] = footerToY;
+		waveInstances[4] = 1;
+		waveInstances[5] = footerToY;
+		waveInstances[6] = fromY;
+		waves.writeInstances(waveInstances, WavesModel.FLOATS_PER_INSTANCE, interpolation);
+	}
+
+	private void writeBubbleInstances(float interpolation) {
+		int offset = 0;
+		for (int i = 0; i < bubblePool.size(); i++) {
+			BubbleModel bubble = bubblePool.get(i);
+			bubbleInstances[offset] = bubble.getX(interpolation);
+			bubbleInstances[offset + 1] = bubble.getY(interpolation);
+			bubbleInstances[offset + 2] = bubble.getSize();
+			bubbleInstances[offset + 3] = bubble.getAlpha(interpolation);
+			offset += FLOATS_PER_BUBBLE;
+		}
+	}
+
+	private void writeBubbleVertices(float interpolation, float ratioY) {
+		float[] unitCircleX = UNIT_CIRCLE_X[bubbleLevel];
+		float[] unitCircleY = UNIT_CIRCLE_Y[bubbleLevel];
+		for (int i = 0; i < bubblePool.size(); i++) {
+			int offset = i * VERTICES_PER_BUBBLE * FLOATS_PER_BUBBLE_VERTEX;
+			BubbleModel bubble = bubblePool.get(i);
+			float x = bubble.getX(interpolation);
+			float y = bubble.getY(interpolation);
+			float size = bubble.getSize();
+			float sizeY = size * ratioY;
+			float alpha = bubble.getAlpha(interpolation);
+			// third coordinate of bubble's vertex holds its alpha
+			bubbleVertices[offset++] = x;
+			bubbleVertices[offset++] = y + bubble.getProgress(interpolation) * sizeY / 2;
+			bubbleVertices[offset++] = alpha;
+			for (int j = 0; j < unitCircleX.length; j++) {
+				bubbleVertices[offset++] = x + unitCircleX[j] * size;
+				bubbleVertices[offset++] = y + unitCircleY[j] * sizeY;
+				bubbleVertices[offset++] = alpha;
+			}
+		}
+	}
+
+	public boolean isCalmedDown() {
+		return waves.isCalmedDown();
+	}
+
+	/**
+	 * Limit number of bubbles on screen. Bubbles already on screen are not removed.
+	 * @param bubblesLimit maximum number of bubbles, not more than {@link #getBubblesCapacity()}
+	 */
+	public void setBubblesLimit(int bubblesLimit) {
+		this.bubblesLimit = bubblesLimit;
+	}
+
+	/**
+	 * Set tessellation of waves and bubbles. Takes effect on next {@link #write(float, float)} call.
+	 * @param waveLevel level of detail of waves
+	 * @param bubbleLevel level of detail of bubbles
+	 */
+	public void setLevelOfDetail(int waveLevel, int bubbleLevel) {
+		this.waveLevel = waveLevel;
+		this.bubbleLevel = bubbleLevel;
+	}
+
+	/**
+	 * Get level of detail of waves.
+	 */
+	public int getWaveLevel() {
+		return waveLevel;
+	}
+
+	/**
+	 * Get level of detail of bubbles.
+	 */
+	public int getBubbleLevel() {
+		return bubbleLevel;
+	}
+
+	/**
+	 * Update waves data. Can be called from any thread.
+	 * @param heightCoefficient wave height's coefficient
+	 * @param amplitude amplitude
+	 */
+	public void updateData(float heightCoefficient, float amplitude) {
+		waves.setCoefficient(heightCoefficient);
+		if (amplitude > this.amplitude) {
+			this.amplitude = amplitude;
+			if (heightCoefficient > 0.25f) {
+				produceBubbles();
+			}
+		} else {
+			this.amplitude = Utils.smooth(this.amplitude, amplitude, 0.8f);
+		}
+	}
+
+	/**
+	 * Produce new bubbles. Bubbles appear on screen on next {@link #step(float, float)} call.
+	 */
+	private void produceBubbles() {
+		bubblePool.requestSpawn();
+	}
+
+	/**
+	 * Spawn bubbles requested by {@link #produceBubbles()}.
+	 */
+	private void spawnBubbles() {
+		int bursts = bubblePool.drainSpawnRequests();
+		int bubblesCount = 0;
+		for (int i = 0; i < bursts; i++) {
+			bubblesCount += random.nextInt(3);
+		}
+		for (int i = 0; i < bubblesCount && bubblePool.size() < bubblesLimit; i++) {
+			BubbleModel bubble = bubblePool.spawn();
+			if (bubble == null) {
+				break;
+			}
+			float shift = random.nextFloat() * 0.1f * (random.nextBoolean() ? 1 : -1);
+			float size = configuration.bubbleSize;
+			if (configuration.randomizeBubbleSize) {
+				size *= 0.5f + random.nextFloat() * 0.8f;
+			}
+			bubble.reset(-1 + random.nextFloat() * 2, bubbleFromY + shift, bubbleToY, size);
+		}
+	}
+
+	/**
+	 * Get current color of layer.
+	 */
+	public float[] getColor() {
+		return color;
+	}
+
+	public void setColor(float[] color) {
+		System.arraycopy(color, 0, this.color, 0, this.color.length);
+	}
+
+	/**
+	 * Get outputs produced by this layer.
+	 */
+	public int getOutputs() {
+		return outputs;
+	}
+
+	/**
+	 * Get vertices of footer and waves mesh, {@link SceneModel#COORDS_PER_VERTEX} floats per vertex.
+	 * Available only with {@link #OUTPUT_MESH} output.
+	 */
+	public float[] getMeshVertices() {
+		return meshVertices;
+	}
+
+	/**
+	 * Get indices of footer and waves mesh (triangles). They never change.
+	 * Available only with {@link #OUTPUT_MESH} output.
+	 * @param level level of detail
+	 */
+	public short[] getMeshIndices(int level) {
+		return meshIndices[level];
+	}
+
+	/**
+	 * Get instances of footer and waves, {@link WavesModel#FLOATS_PER_INSTANCE} floats per instance.
+	 */
+	public float[] getWaveInstances() {
+		return waveInstances;
+	}
+
+	/**
+	 * Get number of footer and waves instances.
+	 */
+	public int getWaveInstancesCount() {
+		return waves.getCount() + 1;
+	}
+
+	/**
+	 * Get instances of visible bubbles, {@link #FLOATS_PER_BUBBLE} floats per bubble.
+	 */
+	public float[] getBubbleInstances() {
+		return bubbleInstances;
+	}
+
+	/**
+	 * Get number of visible bubbles.
+	 */
+	public int getBubblesCount() {
+		return bubblePool.size();
+	}
+
+	/**
+	 * Get maximum number of bubbles.
+	 */
+	public int getBubblesCapacity() {
+		return bubblePool.getCapacity();
+	}
+
+	/**
+	 * Get vertices of visible bubbles, {@link #VERTICES_PER_BUBBLE} vertices per bubble,
+	 * {@link #FLOATS_PER_BUBBLE_VERTEX} floats per vertex: position and bubble's alpha.
+	 * Available only with {@link #OUTPUT_BUBBLE_MESH} output.
+	 */
+	public float[] getBubbleVertices() {
+		return bubbleVertices;
+	}
+
+	/**
+	 * Get indices of bubbles mesh (triangles), {@link #getIndicesPerBubble(int)} indices per bubble.
+	 * They never change. Available only with {@link #OUTPUT_BUBBLE_MESH} output.
+	 * @param level level of detail
+	 */
+	public short[] getBubbleIndices(int level) {
+		return bubbleIndices[level];
+	}
+}
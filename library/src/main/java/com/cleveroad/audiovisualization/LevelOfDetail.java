@@ -0,0 +1,64 @@
+package com.cleveroad.audiovisualization;
+
+/**
+ * Tessellation levels of waves and bubbles. Level 0 is the finest one, every next level halves number of segments.
+ */
+final class LevelOfDetail {
+
+	/**
+	 * Number of segments of curve (wave or bubble's circle) for every level.
+	 */
+	static final int[] SEGMENTS = {40, 20, 10};
+
+	/**
+	 * Number of levels.
+	 */
+	static final int LEVELS = SEGMENTS.length;
+
+	/**
+	 * Finest level.
+	 */
+	static final int FINEST = 0;
+
+	/**
+	 * Coarsest level.
+	 */
+	static final int COARSEST = LEVELS - 1;
+
+	/**
+	 * Maximum number of segments, size of vertex slots reserved for single curve.
+	 */
+	static final int MAX_SEGMENTS = SEGMENTS[FINEST];
+
+	/**
+	 * Desired length of single segment on screen (in pixels).
+	 */
+	private static final float SEGMENT_LENGTH = 6;
+
+	private LevelOfDetail() {}
+
+	/**
+	 * Choose coarsest level that still keeps segments short enough.
+	 * @param length length of curve on screen in pixels
+	 * @return level of detail
+	 */
+	public static int forLength(float length) {
+		int segments = (int) Math.ceil(length / SEGMENT_LENGTH);
+		for (int level = COARSEST; level > FINEST; level--) {
+			if (SEGMENTS[level] >= segments) {
+				return level;
+			}
+		}
+		return FINEST;
+	}
+
+	/**
+	 * Make level coarser.
+	 * @param level level of detail
+	 * @param bias number of levels to drop
+	 * @return coarser level, not beyond {@link #COARSEST}
+	 */
+	public static int lower(int level, int bias) {
+		return Utils.between(level + bias, FINEST, COARSEST);
+	}
+}
@@ -0,0 +1,104 @@
+package com.cleveroad.audiovisualization;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Native memory for vertex and index data of a scene. One direct buffer is allocated for all shapes and sliced into
+ * aligned regions, so surface creation makes a single native allocation instead of a few per shape. Arena is
+ * reset when scene renderer is recreated, buffer is reused if it's large enough. All methods except
+ * {@link #getBytesInUse()} must be called on GL thread.
+ */
+class NativeArena {
+
+	/**
+	 * Alignment of every region in bytes.
+	 */
+	static final int ALIGNMENT = 16;
+
+	private static final int SIZE_OF_FLOAT = GLShape.SIZE_OF_FLOAT;
+	private static final int SIZE_OF_SHORT = GLShape.SIZE_OF_SHORT;
+
+	private ByteBuffer buffer;
+	private int position;
+
+	/**
+	 * Bytes allocated outside of arena because reserved size was too small.
+	 */
+	private int overflow;
+	private volatile int bytesInUse;
+
+	/**
+	 * Get size of region holding specified number of floats.
+	 */
+	static int sizeOfFloats(int count) {
+		return align(count * SIZE_OF_FLOAT);
+	}
+
+	/**
+	 * Get size of region holding specified number of shorts.
+	 */
+	static int sizeOfShorts(int count) {
+		return align(count * SIZE_OF_SHORT);
+	}
+
+	private static int align(int bytes) {
+		return (bytes + ALIGNMENT - 1) & -ALIGNMENT;
+	}
+
+	/**
+	 * Drop all regions and make sure there's room for new ones. Regions taken before are invalid after this call.
+	 * @param bytes total size of regions, sum of {@link #sizeOfFloats(int)} and {@link #sizeOfShorts(int)}
+	 */
+	public void reset(int bytes) {
+		if (buffer == null || buffer.capacity() < bytes) {
+			buffer = ByteBuffer.allocateDirect(Math.max(bytes, ALIGNMENT)).order(ByteOrder.nativeOrder());
+		}
+		position = 0;
+		overflow = 0;
+		bytesInUse = buffer.capacity();
+	}
+
+	/**
+	 * Take region for specified number of floats.
+	 */
+	public FloatBuffer allocateFloats(int count) {
+		return allocate(count * SIZE_OF_FLOAT).asFloatBuffer();
+	}
+
+	/**
+	 * Take region for specified number of shorts.
+	 */
+	public ShortBuffer allocateShorts(int count) {
+		return allocate(count * SIZE_OF_SHORT).asShortBuffer();
+	}
+
+	/**
+	 * Take region of exact size, so its capacity matches requested number of elements. Next region starts
+	 * at aligned offset.
+	 */
+	private ByteBuffer allocate(int bytes) {
+		int size = align(bytes);
+		if (buffer == null || position + size > buffer.capacity()) {
+			// reserved size doesn't match shapes, keep working but let it show in memory usage
+			overflow += bytes;
+			bytesInUse = (buffer != null ? buffer.capacity() : 0) + overflow;
+			return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+		}
+		buffer.limit(position + bytes);
+		buffer.position(position);
+		ByteBuffer region = buffer.slice().order(ByteOrder.nativeOrder());
+		buffer.clear();
+		position += size;
+		return region;
+	}
+
+	/**
+	 * Get number of native bytes allocated for vertex and index data. Can be called from any thread.
+	 */
+	public int getBytesInUse() {
+		return bytesInUse;
+	}
+}
@@ -0,0 +1,83 @@
+package com.cleveroad.audiovisualization;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.support.annotation.NonNull;
+
+/**
+ * Default quality signal source. Thermal state is estimated from battery temperature, since it's the only
+ * temperature available on all API levels. Battery and battery saver broadcasts are received on main thread,
+ * GL thread only reads cached values.
+ */
+class PowerQualitySignalSource implements QualitySignalSource {
+
+	/**
+	 * Battery temperature (in tenths of degree Celsius) from which device is considered hot.
+	 */
+	private static final int HOT_BATTERY_TEMPERATURE = 420;
+
+	private static final Object LOCK = new Object();
+	private static boolean registered;
+	private static volatile boolean thermalThrottling;
+	private static volatile boolean powerSaveMode;
+
+	public PowerQualitySignalSource(@NonNull Context context) {
+		register(context.getApplicationContext());
+	}
+
+	/**
+	 * Start listening for device state. State is the same for all visualizations, so receivers are registered
+	 * once per process on application context.
+	 */
+	private static void register(final Context context) {
+		synchronized (LOCK) {
+			if (registered) {
+				return;
+			}
+			registered = true;
+		}
+		new Handler(Looper.getMainLooper()).post(new Runnable() {
+			@Override
+			public void run() {
+				// battery broadcast is sticky, so current temperature is delivered right after registration
+				context.registerReceiver(new BroadcastReceiver() {
+					@Override
+					public void onReceive(Context context, Intent intent) {
+						thermalThrottling = intent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0) >= HOT_BATTERY_TEMPERATURE;
+					}
+				}, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+				if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+					return;
+				}
+				final PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+				if (powerManager == null) {
+					return;
+				}
+				powerSaveMode = powerManager.isPowerSaveMode();
+				context.registerReceiver(new BroadcastReceiver() {
+					@Override
+					public void onReceive(Context context, Intent intent) {
+						powerSaveMode = powerManager.isPowerSaveMode();
+					}
+				}, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+			}
+		});
+	}
+
+	@Override
+	public boolean isThermalThrottling() {
+		return thermalThrottling;
+	}
+
+	@Override
+	public boolean isPowerSaveMode() {
+		return powerSaveMode;
+	}
+}
@@ -0,0 +1,158 @@
+package com.cleveroad.audiovisualization;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Steps visualization through quality tiers. Tier is raised and lowered back because of load by
+ * {@link FrameLoadController}. Thermal throttling and battery saver reported by {@link QualitySignalSource} keep tier
+ * from going below a floor. Every tier includes reductions of previous ones:
+ * {@link GLAudioVisualizationView#QUALITY_TIER_LOW_FPS}, {@link GLAudioVisualizationView#QUALITY_TIER_LOW_DETAIL},
+ * {@link GLAudioVisualizationView#QUALITY_TIER_FEW_BUBBLES}, {@link GLAudioVisualizationView#QUALITY_TIER_SMALL_CAPTURE}.
+ * Driven by frame timestamps only, so it can be checked without a device.
+ */
+class QualityGovernor {
+
+	/**
+	 * Frame rate cap used from {@link GLAudioVisualizationView#QUALITY_TIER_LOW_FPS} tier.
+	 */
+	static final int REDUCED_FPS = 30;
+
+	/**
+	 * Interval between checks of signal source.
+	 */
+	static final long SIGNAL_POLL_INTERVAL_NANOS = 1000000000L;
+
+	/**
+	 * Tier kept while battery saver is on.
+	 */
+	private static final int POWER_SAVE_TIER = GLAudioVisualizationView.QUALITY_TIER_LOW_FPS;
+
+	/**
+	 * Tier kept while device is hot.
+	 */
+	private static final int THERMAL_TIER = GLAudioVisualizationView.QUALITY_TIER_FEW_BUBBLES;
+
+	/**
+	 * Listener notified about tier changes.
+	 */
+	interface Listener {
+
+		/**
+		 * Called on GL thread when tier changed.
+		 * @param tier new tier
+		 */
+		void onQualityTierChanged(int tier);
+	}
+
+	private final int maxFps;
+	private final QualitySignalSource signalSource;
+	private volatile int tier = GLAudioVisualizationView.QUALITY_TIER_FULL;
+	private int loadTier = GLAudioVisualizationView.QUALITY_TIER_FULL;
+	private int signalTier = GLAudioVisualizationView.QUALITY_TIER_FULL;
+	private boolean started;
+	private long lastPollTime;
+
+	/**
+	 * @param maxFps configured frame rate cap or 0 if there's no cap
+	 * @param signalSource source of device state or null to rely on frame times only
+	 */
+	public QualityGovernor(int maxFps, @Nullable QualitySignalSource signalSource) {
+		this.maxFps = maxFps;
+		this.signalSource = signalSource;
+	}
+
+	/**
+	 * Register new frame, device state is checked once per {@link #SIGNAL_POLL_INTERVAL_NANOS}. Called on GL thread.
+	 * @param frameTimeNanos time of frame in nanoseconds from monotonic clock
+	 * @return true if tier changed
+	 */
+	public boolean onFrame(long frameTimeNanos) {
+		if (started && frameTimeNanos - lastPollTime < SIGNAL_POLL_INTERVAL_NANOS) {
+			return false;
+		}
+		started = true;
+		pollSignals(frameTimeNanos);
+		return updateTier();
+	}
+
+	/**
+	 * Raise tier one step above current one because frames don't fit into frame budget. Called on GL thread.
+	 * @return true if tier changed, false if it's the last tier already
+	 */
+	public boolean raiseLoadTier() {
+		if (tier >= GLAudioVisualizationView.QUALITY_TIER_SMALL_CAPTURE) {
+			return false;
+		}
+		loadTier = tier + 1;
+		return updateTier();
+	}
+
+	/**
+	 * Lower tier raised by {@link #raiseLoadTier()} one step. Called on GL thread.
+	 * @return true if tier changed, false if there's nothing to lower or floor of device state hides load tier
+	 */
+	public boolean lowerLoadTier() {
+		if (loadTier <= signalTier) {
+			loadTier = GLAudioVisualizationView.QUALITY_TIER_FULL;
+			return false;
+		}
+		loadTier--;
+		return updateTier();
+	}
+
+	private boolean updateTier() {
+		int newTier = Math.max(loadTier, signalTier);
+		if (newTier == tier) {
+			return false;
+		}
+		tier = newTier;
+		return true;
+	}
+
+	private void pollSignals(long frameTimeNanos) {
+		lastPollTime = frameTimeNanos;
+		signalTier = GLAudioVisualizationView.QUALITY_TIER_FULL;
+		if (signalSource == null) {
+			return;
+		}
+		if (signalSource.isPowerSaveMode()) {
+			signalTier = POWER_SAVE_TIER;
+		}
+		if (signalSource.isThermalThrottling()) {
+			signalTier = Math.max(signalTier, THERMAL_TIER);
+		}
+	}
+
+	/**
+	 * Get current tier. Can be called from any thread.
+	 */
+	public int getTier() {
+		return tier;
+	}
+
+	/**
+	 * Get frame rate cap for current tier.
+	 * @return maximum number of frames per second or 0 for display's refresh rate
+	 */
+	public int getMaxFps() {
+		if (tier < GLAudioVisualizationView.QUALITY_TIER_LOW_FPS) {
+			return maxFps;
+		}
+		return maxFps > 0 ? Math.min(maxFps, REDUCED_FPS) : REDUCED_FPS;
+	}
+
+	/**
+	 * Get number of tessellation levels dropped in current tier.
+	 */
+	public int getLodBias() {
+		return tier >= GLAudioVisualizationView.QUALITY_TIER_LOW_DETAIL ? 1 : 0;
+	}
+
+	/**
+	 * Get maximum number of bubbles per layer for current tier.
+	 * @param bubblesPerLayer configured number of bubbles per layer
+	 */
+	public int getBubblesLimit(int bubblesPerLayer) {
+		return tier >= GLAudioVisualizationView.QUALITY_TIER_FEW_BUBBLES ? (bubblesPerLayer + 1) / 2 : bubblesPerLayer;
+	}
+}
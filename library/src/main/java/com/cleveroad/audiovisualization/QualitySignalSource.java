@@ -0,0 +1,21 @@
+package com.cleveroad.audiovisualization;
+
+/**
+ * Source of device state used by quality governor. Default implementation checks battery saver and battery
+ * temperature, custom implementation can be set with
+ * {@link GLAudioVisualizationView.Builder#setQualitySignalSource(QualitySignalSource)}.
+ * Methods are called on GL thread about once per second, so they must return cached state without IPC or disk
+ * access.
+ */
+public interface QualitySignalSource {
+
+	/**
+	 * Check if device is hot and GPU is likely to be throttled.
+	 */
+	boolean isThermalThrottling();
+
+	/**
+	 * Check if battery saver is on.
+	 */
+	boolean isPowerSaveMode();
+}
@@ -0,0 +1,124 @@
+package com.cleveroad.audiovisualization;
+
+import android.opengl.GLSurfaceView;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.util.DisplayMetrics;
+
+/**
+ * Renders surface at a fraction of native resolution using {@link android.view.SurfaceHolder#setFixedSize(int, int)}.
+ * Buffer is upscaled to view bounds by compositor, so there's no extra drawing pass. Scale can be changed at any time
+ * and optionally follows frame times: {@link FrameLoadController} lowers it step by step while frames stay over budget
+ * and raises it back after a while without overload.
+ */
+class RenderScaler {
+
+	/**
+	 * Lowest scale chosen from frame times.
+	 */
+	static final float MIN_ADAPTIVE_SCALE = 0.5f;
+
+	private static final float SCALE_STEP = 0.125f;
+
+	private final GLSurfaceView glSurfaceView;
+	private final Handler handler;
+	private final boolean adaptive;
+	private volatile float maxScale;
+	private volatile float scale;
+
+	private final Runnable applyRunnable = new Runnable() {
+		@Override
+		public void run() {
+			apply();
+		}
+	};
+
+	/**
+	 * Create new scaler.
+	 * @param glSurfaceView surface view to scale
+	 * @param scale fraction of native resolution
+	 * @param adaptive true to lower scale while frames don't fit into frame budget
+	 */
+	public RenderScaler(@NonNull GLSurfaceView glSurfaceView, float scale, boolean adaptive) {
+		this.glSurfaceView = glSurfaceView;
+		this.handler = new Handler(Looper.getMainLooper());
+		this.adaptive = adaptive;
+		this.maxScale = Utils.between(scale, Constants.MIN_RENDER_SCALE, Constants.MAX_RENDER_SCALE);
+		this.scale = maxScale;
+		if (this.scale < Constants.MAX_RENDER_SCALE) {
+			handler.post(applyRunnable);
+		}
+	}
+
+	/**
+	 * Set scale. With frame time feedback it's the highest scale used. Can be called from any thread.
+	 * @param scale fraction of native resolution
+	 */
+	public void setScale(float scale) {
+		maxScale = Utils.between(scale, Constants.MIN_RENDER_SCALE, Constants.MAX_RENDER_SCALE);
+		this.scale = maxScale;
+		handler.post(applyRunnable);
+	}
+
+	/**
+	 * Get current scale. Can be called from any thread.
+	 */
+	public float getScale() {
+		return scale;
+	}
+
+	/**
+	 * Lower scale one step because frames don't fit into frame budget. Called on GL thread.
+	 * @return true if scale was lowered, false if scale doesn't follow frame times or it's the lowest one already
+	 */
+	public boolean reduce() {
+		if (!adaptive) {
+			return false;
+		}
+		return update(Math.max(scale - SCALE_STEP, Math.min(MIN_ADAPTIVE_SCALE, maxScale)));
+	}
+
+	/**
+	 * Raise scale lowered by {@link #reduce()} one step. Called on GL thread.
+	 * @return true if scale was raised, false if scale is the highest one already
+	 */
+	public boolean restore() {
+		return update(Math.min(scale + SCALE_STEP, maxScale));
+	}
+
+	private boolean update(float newScale) {
+		if (newScale == scale) {
+			return false;
+		}
+		scale = newScale;
+		handler.post(applyRunnable);
+		return true;
+	}
+
+	/**
+	 * Apply scale to new size of view. Called on main thread.
+	 */
+	public void onSizeChanged() {
+		if (scale < Constants.MAX_RENDER_SCALE) {
+			handler.post(applyRunnable);
+		}
+	}
+
+	private void apply() {
+		float scale = this.scale;
+		if (scale >= Constants.MAX_RENDER_SCALE) {
+			glSurfaceView.getHolder().setSizeFromLayout();
+			return;
+		}
+		int width = glSurfaceView.getWidth();
+		int height = glSurfaceView.getHeight();
+		if (width == 0 || height == 0) {
+			// surface view that is not laid out, for example in live wallpaper, covers whole display
+			DisplayMetrics displayMetrics = glSurfaceView.getContext().getResources().getDisplayMetrics();
+			width = displayMetrics.widthPixels;
+			height = displayMetrics.heightPixels;
+		}
+		glSurfaceView.getHolder().setFixedSize(Math.max(Math.round(width * scale), 1), Math.max(Math.round(height * scale), 1));
+	}
+}
@@ -0,0 +1,171 @@
+package com.cleveroad.audiovisualization;
+
+import java.util.Random;
+
+/**
+ * Simulation of whole visualization scene: wave layers with their footers, waves and bubbles. Produces plain arrays
+ * with geometry for drawing and doesn't make any OpenGL calls, so it can be run and measured on JVM.
+ * <p>
+ * Simulation is advanced with fixed timestep of {@link #STEP} milliseconds regardless of frame rate, geometry
+ * is interpolated between two last steps. With the same seed and the same sequence of frame times and data
+ * scene produces the same output.
+ */
+class SceneModel {
+
+	/**
+	 * Number of coordinates per vertex in produced meshes. Everything is flat, so there's no Z coordinate.
+	 */
+	static final int COORDS_PER_VERTEX = 2;
+
+	/**
+	 * Simulation timestep in milliseconds.
+	 */
+	static final float STEP = 1000f / 60;
+
+	/**
+	 * Maximum time simulated per frame in milliseconds, longer pauses (for example, when app was in background)
+	 * are skipped.
+	 */
+	static final float MAX_FRAME_TIME = 250;
+
+	private static final long ANIMATION_TIME = 400;
+	private static final float D_ANGLE = (float) (2 * Math.PI / ANIMATION_TIME);
+
+	private final LayerModel[] layers;
+	private float accumulator;
+	private boolean isCalmedDown;
+	private volatile int colorsVersion;
+
+	/**
+	 * Create new scene.
+	 * @param configuration visualization configuration
+	 * @param height height of screen in pixels, used for converting wave and footer heights into OpenGL units
+	 * @param random instance of Random used for seeding random generators of layers
+	 * @param outputs combination of {@link LayerModel#OUTPUT_MESH} and {@link LayerModel#OUTPUT_BUBBLE_MESH} flags
+	 */
+	public SceneModel(GLAudioVisualizationView.Configuration configuration, float height, Random random, int outputs) {
+		layers = new LayerModel[configuration.layersCount];
+		float layerHeightPerc = (configuration.footerHeight + configuration.waveHeight) / height;
+		float waveHeightPerc = configuration.waveHeight / height * 2;
+		for (int i = 0; i < layers.length; i++) {
+			int reverseI = layers.length - i - 1;
+			float fromY = -1 + reverseI * waveHeightPerc * 2;
+			float toY = fromY + layerHeightPerc * 2;
+			// every layer has own generator, so changes in one layer don't affect sequences of others
+			layers[i] = new LayerModel(configuration, configuration.layerColors[i], fromY, toY, new Random(random.nextLong()), outputs);
+		}
+	}
+
+	/**
+	 * Advance simulation by elapsed time and produce data for drawing.
+	 * @param dt time elapsed from last frame in milliseconds
+	 * @param ratioY aspect ratio for Y coordinates
+	 * @return true if all layers are calmed down, false otherwise
+	 */
+	public boolean update(float dt, float ratioY) {
+		accumulator += Math.min(Math.max(dt, 0), MAX_FRAME_TIME);
+		while (accumulator >= STEP) {
+			step();
+			accumulator -= STEP;
+		}
+		float interpolation = accumulator / STEP;
+		for (LayerModel layer : layers) {
+			layer.write(interpolation, ratioY);
+		}
+		return isCalmedDown;
+	}
+
+	/**
+	 * Check if scene needs more frames without new data: waves are moving or bubbles are visible.
+	 */
+	public boolean isAnimating() {
+		if (!isCalmedDown) {
+			return true;
+		}
+		for (LayerModel layer : layers) {
+			if (layer.getBubblesCount() > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Advance simulation by single timestep.
+	 */
+	private void step() {
+		boolean isCalmedDown = true;
+		for (int i = 0; i < layers.length; i++) {
+			// slow down speed of wave from top to bottom of screen
+			float speedCoef = (1 - 1f * i / (layers.length) * 0.8f);
+			layers[i].step(STEP, D_ANGLE * speedCoef);
+			isCalmedDown &= layers[i].isCalmedDown();
+		}
+		this.isCalmedDown = isCalmedDown;
+	}
+
+	/**
+	 * Get outputs produced by layers.
+	 * @return combination of {@link LayerModel#OUTPUT_MESH} and {@link LayerModel#OUTPUT_BUBBLE_MESH} flags
+	 */
+	public int getOutputs() {
+		return layers[0].getOutputs();
+	}
+
+	/**
+	 * Get wave layers from bottom to top.
+	 */
+	public LayerModel[] getLayers() {
+		return layers;
+	}
+
+	/**
+	 * Update layers with new data. Can be called from any thread.
+	 * @param dBmArray normalized dBm values for every layer
+	 * @param ampsArray normalized amplitude values for every layer
+	 */
+	public void onDataReceived(float[] dBmArray, float[] ampsArray) {
+		for (int i = 0; i < layers.length; i++) {
+			layers[i].updateData(dBmArray[i], ampsArray[i]);
+		}
+	}
+
+	/**
+	 * Set tessellation of waves and bubbles of all layers.
+	 * @param waveLevel level of detail of waves
+	 * @param bubbleLevel level of detail of bubbles
+	 */
+	public void setLevelOfDetail(int waveLevel, int bubbleLevel) {
+		for (LayerModel layer : layers) {
+			layer.setLevelOfDetail(waveLevel, bubbleLevel);
+		}
+	}
+
+	/**
+	 * Limit number of bubbles of every layer.
+	 * @param bubblesLimit maximum number of bubbles per layer
+	 */
+	public void setBubblesLimit(int bubblesLimit) {
+		for (LayerModel layer : layers) {
+			layer.setBubblesLimit(bubblesLimit);
+		}
+	}
+
+	/**
+	 * Update colors of layers.
+	 * @param colors new colors of layers
+	 */
+	public void setColors(float[][] colors) {
+		for (int i = 0; i < layers.length; i++) {
+			layers[i].setColor(colors[i]);
+		}
+		colorsVersion++;
+	}
+
+	/**
+	 * Get number of color updates, renderers keeping colors on GPU upload them again only when it changes.
+	 */
+	public int getColorsVersion() {
+		return colorsVersion;
+	}
+}
@@ -0,0 +1,100 @@
+package com.cleveroad.audiovisualization;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/**
+ * Audio visualization view drawn by render engine shared with other such views: all of them use one GL thread and
+ * one OpenGL context, compiled programs are shared too. Use it when several visualizations are shown at once.
+ * Surface is always RGBA8888 with stencil buffer, surface format, multisampling and render scale settings are
+ * ignored.
+ */
+public class SharedAudioVisualizationView extends SurfaceView implements AudioVisualization {
+
+    private final SharedVisualization visualization;
+    private boolean hasWindow;
+
+    SharedAudioVisualizationView(@NonNull Context context, @NonNull GLAudioVisualizationView.Configuration configuration) {
+        super(context);
+        visualization = new SharedVisualization(context, configuration);
+        init();
+    }
+
+    public SharedAudioVisualizationView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        visualization = new SharedVisualization(context, new GLAudioVisualizationView.Configuration(context, attrs, isInEditMode()));
+        init();
+    }
+
+    private void init() {
+        getHolder().addCallback(new SurfaceHolder.Callback() {
+            @Override
+            public void surfaceCreated(SurfaceHolder holder) {
+                // size is reported right after creation
+            }
+
+            @Override
+            public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+                if (hasWindow) {
+                    visualization.getTarget().onSizeChanged(width, height);
+                } else {
+                    hasWindow = true;
+                    visualization.getTarget().setWindow(holder, width, height);
+                }
+            }
+
+            @Override
+            public void surfaceDestroyed(SurfaceHolder holder) {
+                hasWindow = false;
+                visualization.getTarget().removeWindow();
+            }
+        });
+    }
+
+    @Override
+    public <T> void linkTo(@NonNull DbmHandler<T> dbmHandler) {
+        visualization.linkTo(dbmHandler);
+    }
+
+    @Override
+    public void onResume() {
+        visualization.onResume();
+    }
+
+    @Override
+    public void onPause() {
+        visualization.onPause();
+    }
+
+    @Override
+    public void release() {
+        visualization.release();
+    }
+
+    /**
+     * Get current quality tier chosen by quality governor.
+     *
+     * @return one of {@code QUALITY_TIER_*} constants of {@link GLAudioVisualizationView}
+     */
+    public int getQualityTier() {
+        return visualization.getRenderer().getQualityTier();
+    }
+
+    /**
+     * Get number of OpenGL objects created by visualization and not deleted yet, not counting programs shared
+     * with other visualizations.
+     */
+    public int getGLObjectsCount() {
+        return visualization.getRenderer().getGLObjectsCount();
+    }
+
+    /**
+     * Get number of native bytes allocated for vertex and index data.
+     */
+    public int getNativeMemoryUsage() {
+        return visualization.getRenderer().getNativeMemoryUsage();
+    }
+}
@@ -0,0 +1,134 @@
+package com.cleveroad.audiovisualization;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Visualization drawn by {@link GLRenderEngine}: renderer, frame scheduler and linked dBm handler of a view.
+ * Views only pass their window to {@link #getTarget()}.
+ */
+class SharedVisualization implements InnerAudioVisualization {
+
+    private final GLAudioVisualizationView.Configuration configuration;
+    private final GLRenderEngine.RenderTarget target;
+    private final GLRenderer renderer;
+    private final FrameScheduler frameScheduler;
+    private volatile DbmHandler<?> dbmHandler;
+    private volatile boolean rendering;
+    private volatile boolean shown = true;
+    private CalmDownListener innerCalmDownListener;
+
+    SharedVisualization(@NonNull Context context, @NonNull GLAudioVisualizationView.Configuration configuration) {
+        this.configuration = configuration;
+        target = GLRenderEngine.createTarget(configuration, context.getResources().getDisplayMetrics().heightPixels);
+        renderer = target.getRenderer();
+        frameScheduler = new FrameScheduler(target, configuration.renderMode, configuration.maxFps);
+        renderer.frameScheduler(frameScheduler);
+        renderer.qualityListener(new QualityGovernor.Listener() {
+            @Override
+            public void onQualityTierChanged(int tier) {
+                DbmHandler<?> dbmHandler = SharedVisualization.this.dbmHandler;
+                if (dbmHandler != null) {
+                    dbmHandler.setQualityTier(SharedVisualization.this, tier);
+                }
+            }
+        });
+        renderer.calmDownListener(new CalmDownListener() {
+            @Override
+            public void onCalmedDown() {
+                stopRendering();
+                if (innerCalmDownListener != null) {
+                    innerCalmDownListener.onCalmedDown();
+                }
+            }
+        });
+    }
+
+    /**
+     * Get target window of view must be passed to.
+     */
+    GLRenderEngine.RenderTarget getTarget() {
+        return target;
+    }
+
+    GLRenderer getRenderer() {
+        return renderer;
+    }
+
+    <T> void linkTo(@NonNull DbmHandler<T> dbmHandler) {
+        if (this.dbmHandler != null && this.dbmHandler != dbmHandler && this.dbmHandler.tearDown(this)) {
+            this.dbmHandler.release();
+        }
+        this.dbmHandler = dbmHandler;
+        this.dbmHandler.setUp(this, configuration.layersCount);
+        if (renderer.getQualityTier() != GLAudioVisualizationView.QUALITY_TIER_FULL) {
+            this.dbmHandler.setQualityTier(this, renderer.getQualityTier());
+        }
+    }
+
+    void onResume() {
+        if (dbmHandler != null) {
+            dbmHandler.resume(this);
+        }
+    }
+
+    void onPause() {
+        if (dbmHandler != null) {
+            dbmHandler.pause(this);
+        }
+        stopRendering();
+    }
+
+    /**
+     * Stop requesting frames while view is not shown, for example scrolled out of list. Rendering continues
+     * when view is shown again if it wasn't stopped meanwhile.
+     */
+    void setShown(boolean shown) {
+        if (this.shown == shown) {
+            return;
+        }
+        this.shown = shown;
+        if (shown && rendering) {
+            frameScheduler.start();
+        } else if (!shown) {
+            frameScheduler.stop();
+        }
+    }
+
+    void release() {
+        if (dbmHandler != null) {
+            if (dbmHandler.tearDown(this)) {
+                dbmHandler.release();
+            }
+            dbmHandler = null;
+        }
+        stopRendering();
+        target.release();
+    }
+
+    @Override
+    public void startRendering() {
+        rendering = true;
+        if (shown) {
+            frameScheduler.start();
+        }
+    }
+
+    @Override
+    public void stopRendering() {
+        rendering = false;
+        frameScheduler.stop();
+    }
+
+    @Override
+    public void calmDownListener(@Nullable CalmDownListener calmDownListener) {
+        innerCalmDownListener = calmDownListener;
+    }
+
+    @Override
+    public void onDataReceived(float[] dBmArray, float[] ampsArray) {
+        renderer.onDataReceived(dBmArray, ampsArray);
+        frameScheduler.invalidate();
+    }
+}
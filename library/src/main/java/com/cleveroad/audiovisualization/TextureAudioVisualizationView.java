@@ -0,0 +1,134 @@
+package com.cleveroad.audiovisualization;
+
+import android.content.Context;
+import android.graphics.SurfaceTexture;
+import android.support.annotation.NonNull;
+import android.util.AttributeSet;
+import android.view.TextureView;
+import android.view.View;
+
+/**
+ * Audio visualization view based on {@link TextureView}, so it can be placed into scrolling lists, moved, faded and
+ * animated like any other view. Like {@link SharedAudioVisualizationView} it's drawn by render engine shared with
+ * other such views. When view is detached (for example, recycled by list) only its window surface is destroyed,
+ * OpenGL objects and animation state are kept for next attach. Frames are not requested while view is not shown.
+ * Surface format, multisampling and render scale settings are ignored.
+ */
+public class TextureAudioVisualizationView extends TextureView implements AudioVisualization {
+
+    private final SharedVisualization visualization;
+
+    TextureAudioVisualizationView(@NonNull Context context, @NonNull GLAudioVisualizationView.Configuration configuration) {
+        super(context);
+        visualization = new SharedVisualization(context, configuration);
+        init();
+    }
+
+    public TextureAudioVisualizationView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        visualization = new SharedVisualization(context, new GLAudioVisualizationView.Configuration(context, attrs, isInEditMode()));
+        init();
+    }
+
+    private void init() {
+        setSurfaceTextureListener(new SurfaceTextureListener() {
+            @Override
+            public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+                visualization.getTarget().setWindow(surface, width, height);
+            }
+
+            @Override
+            public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
+                visualization.getTarget().onSizeChanged(width, height);
+            }
+
+            @Override
+            public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+                visualization.getTarget().removeWindow();
+                return true;
+            }
+
+            @Override
+            public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+
+            }
+        });
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        visualization.setShown(isShown());
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        visualization.setShown(false);
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        visualization.setShown(isShown());
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        visualization.setShown(isShown());
+    }
+
+    @Override
+    public <T> void linkTo(@NonNull DbmHandler<T> dbmHandler) {
+        visualization.linkTo(dbmHandler);
+    }
+
+    @Override
+    public void onResume() {
+        visualization.onResume();
+    }
+
+    @Override
+    public void onPause() {
+        visualization.onPause();
+    }
+
+    @Override
+    public void release() {
+        visualization.release();
+    }
+
+    /**
+     * Get renderer drawing this view. Colors can be changed at runtime with
+     * {@link GLAudioVisualizationView.AudioVisualizationRenderer#updateConfiguration(GLAudioVisualizationView.ColorsBuilder)}.
+     * Renderer is driven by shared render engine, don't set it to other surfaces.
+     */
+    public GLAudioVisualizationView.AudioVisualizationRenderer getRenderer() {
+        return visualization.getRenderer();
+    }
+
+    /**
+     * Get current quality tier chosen by quality governor.
+     *
+     * @return one of {@code QUALITY_TIER_*} constants of {@link GLAudioVisualizationView}
+     */
+    public int getQualityTier() {
+        return visualization.getRenderer().getQualityTier();
+    }
+
+    /**
+     * Get number of OpenGL objects created by visualization and not deleted yet, not counting programs shared
+     * with other visualizations.
+     */
+    public int getGLObjectsCount() {
+        return visualization.getRenderer().getGLObjectsCount();
+    }
+
+    /**
+     * Get number of native bytes allocated for vertex and index data.
+     */
+    public int getNativeMemoryUsage() {
+        return visualization.getRenderer().getNativeMemoryUsage();
+    }
+}
@@ -86,6 +86,17 @@ class Utils {
 		return a * newValue + (1 - a) * prevValue;
 	}
 
+	/**
+	 * Linear interpolation between two values.
+	 * @param from value at <code>t = 0</code>
+	 * @param to value at <code>t = 1</code>
+	 * @param t interpolation factor
+	 * @return interpolated value
+	 */
+	public static float lerp(float from, float to, float t) {
+		return from + (to - from) * t;
+	}
+
 	/**
 	 * Quadratic Bezier curve.
 	 * @param t time
@@ -95,7 +106,25 @@ class Utils {
 	 * @return point on Bezier curve at some time <code>t</code>
 	 */
 	public static float quad(float t, float p0, float p1, float p2) {
-		return (float) (p0 * Math.pow(1 - t, 2) + p1 * 2 * t * (1 - t) + p2 * t * t);
+		float u = 1 - t;
+		return p0 * u * u + p1 * 2 * t * u + p2 * t * t;
+	}
+
+	/**
+	 * Precompute quadratic Bezier basis for uniform grid <code>t = i / count</code>, <code>i = [0..count)</code>.
+	 * @param count number of points
+	 * @return array of <code>3 * count</code> weights for start, control and end points
+	 */
+	public static float[] quadBasis(int count) {
+		float[] basis = new float[3 * count];
+		for (int i = 0; i < count; i++) {
+			double t = (double) i / count;
+			double u = 1 - t;
+			basis[3 * i] = (float) (u * u);
+			basis[3 * i + 1] = (float) (2 * t * u);
+			basis[3 * i + 2] = (float) (t * t);
+		}
+		return basis;
 	}
 
 	public static float randomize(float value, Random random) {
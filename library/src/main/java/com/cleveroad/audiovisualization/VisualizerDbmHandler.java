@@ -73,6 +73,12 @@ public class VisualizerDbmHandler extends DbmHandler<byte[]> implements Visualiz
         onDataReceived(fft);
     }
 
+    @Override
+    protected void onQualityTierChanged(int tier) {
+        super.onQualityTierChanged(tier);
+        visualizerWrapper.setReducedCaptureSize(tier >= GLAudioVisualizationView.QUALITY_TIER_SMALL_CAPTURE);
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -0,0 +1,254 @@
+package com.cleveroad.audiovisualization;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.media.audiofx.Visualizer;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.cleveroad.audiovisualization.utils.TunnelPlayerWorkaround;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide registry of {@link Visualizer} instances. Visualizer is a scarce system resource and every instance
+ * adds its own capture callbacks, so all wrappers of the same audio session share one instance with the same
+ * capture settings. Instance is created for first wrapper of a session and released when last one is released.
+ */
+class VisualizerRegistry {
+
+    private static final Map<Integer, Entry> ENTRIES = new HashMap<>();
+    private static Factory factory = new Factory();
+
+    /**
+     * Replace factory used for new visualizers, for example with fake one in unit tests.
+     * @return previous factory
+     */
+    static Factory setFactory(@NonNull Factory factory) {
+        synchronized (ENTRIES) {
+            Factory previous = VisualizerRegistry.factory;
+            VisualizerRegistry.factory = factory;
+            return previous;
+        }
+    }
+
+    /**
+     * Get visualizer of audio session, creating it if there's none yet.
+     * @param wrapper wrapper that will use visualizer until {@link #release(Entry, VisualizerWrapper)}
+     */
+    static Entry obtain(@NonNull Context context, int audioSessionId, @NonNull VisualizerWrapper wrapper) {
+        synchronized (ENTRIES) {
+            Entry entry = ENTRIES.get(audioSessionId);
+            if (entry == null) {
+                entry = new Entry(factory, context, audioSessionId);
+                ENTRIES.put(audioSessionId, entry);
+            }
+            entry.addUser(wrapper);
+            return entry;
+        }
+    }
+
+    /**
+     * Stop using visualizer. Visualizer is released when there are no users left.
+     */
+    static void release(@NonNull Entry entry, @NonNull VisualizerWrapper wrapper) {
+        synchronized (ENTRIES) {
+            if (!entry.removeUser(wrapper)) {
+                return;
+            }
+            ENTRIES.remove(entry.audioSessionId);
+        }
+        // releasing native objects may take a while, other sessions are not blocked meanwhile
+        entry.release();
+    }
+
+    /**
+     * Visualizer of one audio session. Captured data is delivered to every enabled wrapper.
+     */
+    static class Entry {
+
+        private static final long WAIT_UNTIL_HACK = 500;
+        private final int audioSessionId;
+        private final Factory factory;
+        private final Set<VisualizerWrapper> users = new HashSet<>();
+        private final List<VisualizerWrapper> enabledUsers = new CopyOnWriteArrayList<>();
+        private final Set<VisualizerWrapper> reducedUsers = new HashSet<>();
+        private Visualizer visualizer;
+        private MediaPlayer silentPlayer;
+        private final Visualizer.OnDataCaptureListener captureListener;
+        private final int captureRate;
+        private long lastZeroArrayTimestamp;
+
+        private Entry(@NonNull Factory factory, @NonNull Context context, int audioSessionId) {
+            this.audioSessionId = audioSessionId;
+            this.factory = factory;
+            silentPlayer = factory.createSilentPlayer(context);
+            try {
+                visualizer = factory.createVisualizer(audioSessionId);
+                visualizer.setEnabled(false);
+                visualizer.setCaptureSize(factory.getCaptureSizeRange()[1]);
+            } catch (RuntimeException e) {
+                // for example, no RECORD_AUDIO permission: entry is not registered, so free what was created
+                release();
+                throw e;
+            }
+            captureRate = factory.getMaxCaptureRate();
+            captureListener = new Visualizer.OnDataCaptureListener() {
+                @Override
+                public void onWaveFormDataCapture(Visualizer visualizer, byte[] waveform, int samplingRate) {
+
+                }
+
+                @Override
+                public void onFftDataCapture(Visualizer visualizer, byte[] fft, int samplingRate) {
+                    boolean allZero = Utils.allElementsAreZero(fft);
+                    if (lastZeroArrayTimestamp == 0) {
+                        if (allZero) {
+                            lastZeroArrayTimestamp = System.currentTimeMillis();
+                        }
+                    } else {
+                        if (!allZero) {
+                            lastZeroArrayTimestamp = 0;
+                        } else if (System.currentTimeMillis() - lastZeroArrayTimestamp >= WAIT_UNTIL_HACK) {
+                            updateCaptureListener();
+                            lastZeroArrayTimestamp = 0;
+                        }
+                    }
+                    for (VisualizerWrapper user : enabledUsers) {
+                        user.onFftDataCapture(fft);
+                    }
+                }
+            };
+            visualizer.setEnabled(true);
+        }
+
+        private synchronized void addUser(VisualizerWrapper wrapper) {
+            users.add(wrapper);
+            // new wrapper wants full capture size until it asks otherwise
+            updateCaptureSize();
+        }
+
+        /**
+         * @return true if it was the last user
+         */
+        private synchronized boolean removeUser(VisualizerWrapper wrapper) {
+            if (!users.remove(wrapper)) {
+                return false;
+            }
+            if (enabledUsers.remove(wrapper)) {
+                updateCaptureListener();
+            }
+            reducedUsers.remove(wrapper);
+            updateCaptureSize();
+            return users.isEmpty();
+        }
+
+        /**
+         * Start or stop delivering captured data to wrapper. Capture listener is set while any wrapper is enabled.
+         */
+        public synchronized void setEnabled(@NonNull VisualizerWrapper wrapper, boolean enabled) {
+            if (enabled && !enabledUsers.contains(wrapper)) {
+                enabledUsers.add(wrapper);
+            } else if (!enabled) {
+                enabledUsers.remove(wrapper);
+            }
+            updateCaptureListener();
+        }
+
+        private synchronized void updateCaptureListener() {
+            if (visualizer == null) return;
+            visualizer.setEnabled(false);
+            if (enabledUsers.isEmpty()) {
+                visualizer.setDataCaptureListener(null, captureRate, false, false);
+            } else {
+                visualizer.setDataCaptureListener(captureListener, captureRate, false, true);
+            }
+            visualizer.setEnabled(true);
+        }
+
+        /**
+         * Switch between maximum and reduced capture size. Capture size is shared, so it's reduced only when every
+         * wrapper asks for it.
+         * @param reduced true to capture quarter of maximum size
+         */
+        public synchronized void setReducedCaptureSize(@NonNull VisualizerWrapper wrapper, boolean reduced) {
+            if (reduced) {
+                reducedUsers.add(wrapper);
+            } else {
+                reducedUsers.remove(wrapper);
+            }
+            updateCaptureSize();
+        }
+
+        private void updateCaptureSize() {
+            if (visualizer == null || users.isEmpty()) return;
+            int[] range = factory.getCaptureSizeRange();
+            boolean allReduced = reducedUsers.size() == users.size();
+            int captureSize = allReduced ? Math.max(range[1] / 4, range[0]) : range[1];
+            if (visualizer.getCaptureSize() == captureSize) return;
+            boolean enabled = visualizer.getEnabled();
+            // capture size can be changed only while visualizer is disabled
+            visualizer.setEnabled(false);
+            visualizer.setCaptureSize(captureSize);
+            visualizer.setEnabled(enabled);
+        }
+
+        private void release() {
+            Visualizer visualizer;
+            MediaPlayer silentPlayer;
+            synchronized (this) {
+                enabledUsers.clear();
+                reducedUsers.clear();
+                visualizer = this.visualizer;
+                silentPlayer = this.silentPlayer;
+                this.visualizer = null;
+                this.silentPlayer = null;
+            }
+            if (visualizer != null) {
+                visualizer.setEnabled(false);
+                visualizer.release();
+            }
+            if (silentPlayer != null) {
+                silentPlayer.release();
+            }
+        }
+    }
+
+    /**
+     * Creates visualizers and silent players of tunnel player workaround. Replaced in unit tests, since system
+     * visualizer is not available on JVM.
+     */
+    static class Factory {
+
+        /**
+         * Create silent player if tunnel player workaround is needed.
+         * @return started silent player or null if workaround isn't needed
+         */
+        @Nullable
+        MediaPlayer createSilentPlayer(@NonNull Context context) {
+            // Read "tunnel.decode" system property to determine
+            // the workaround is needed
+            if (TunnelPlayerWorkaround.isTunnelDecodeEnabled(context)) {
+                return TunnelPlayerWorkaround.createSilentMediaPlayer(context);
+            }
+            return null;
+        }
+
+        Visualizer createVisualizer(int audioSessionId) {
+            return new Visualizer(audioSessionId);
+        }
+
+        int[] getCaptureSizeRange() {
+            return Visualizer.getCaptureSizeRange();
+        }
+
+        int getMaxCaptureRate() {
+            return Visualizer.getMaxCaptureRate();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.cleveroad.audiovisualization;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulation of all waves of a layer. State of waves is kept in parallel primitive arrays and updated in one loop,
+ * vertices of all waves are produced into one contiguous array. Doesn't depend on OpenGL.
+ */
+class WavesModel {
+
+	/**
+	 * Smooth coefficient for {@link Utils#smooth(float, float, float)} method.
+	 */
+	private static final float SMOOTH_A = 0.35f;
+
+	/**
+	 * Maximum number of points used for drawing Bezier curve, actual number depends on level of detail.
+	 */
+	static final int POINTS_PER_WAVE = LevelOfDetail.MAX_SEGMENTS;
+
+	/**
+	 * Number of additional points used for drawing wave: center, lb, lt, rt, rb.
+	 */
+	private static final int ADDITIONAL_POINTS = 5;
+
+	private static final int COORDS_PER_VERTEX = SceneModel.COORDS_PER_VERTEX;
+
+	/**
+	 * Number of vertices reserved for single wave.
+	 */
+	public static final int VERTICES_PER_WAVE = POINTS_PER_WAVE + ADDITIONAL_POINTS;
+
+	/**
+	 * Number of floats describing single wave instance: start, control and end points, base Y.
+	 */
+	public static final int FLOATS_PER_INSTANCE = 7;
+
+	/**
+	 * Number of floats to skip for getting proper index for Bezier curve points.
+	 */
+	private static final int SKIP = (int) Math.ceil(ADDITIONAL_POINTS / 2f) * COORDS_PER_VERTEX;
+
+	private static final int FLOATS_PER_WAVE = VERTICES_PER_WAVE * COORDS_PER_VERTEX;
+
+	/**
+	 * Bernstein basis of quadratic Bezier curve for every point of wave and every level of detail:
+	 * {@code (1-t)^2, 2t(1-t), t^2}.
+	 */
+	private static final float[][] BEZIER_BASIS = new float[LevelOfDetail.LEVELS][];
+
+	static {
+		for (int level = 0; level < LevelOfDetail.LEVELS; level++) {
+			BEZIER_BASIS[level] = Utils.quadBasis(LevelOfDetail.SEGMENTS[level]);
+		}
+	}
+
+	private static final int NO_COEFFICIENT = Float.floatToIntBits(Float.NaN);
+
+	private final Random random;
+	private final int count;
+	private final float fromY, toY, middleY;
+	private final float[] fromX;
+	private final float[] toX;
+	private final float[] angles;
+	private final float[] coefficients;
+	private final float[] latestCoefficients;
+	private final float[] prevValues;
+	private final float[] offsets;
+	private final float[] controlX;
+	private final float[] controlY;
+	private final float[] prevControlX;
+	private final float[] prevControlY;
+
+	/**
+	 * Height coefficient posted by data thread as float bits, {@link #NO_COEFFICIENT} if there is no new value.
+	 * It's randomized for every wave on rendering thread, so simulation stays deterministic.
+	 */
+	private final AtomicInteger pendingCoefficient = new AtomicInteger(NO_COEFFICIENT);
+	private boolean isCalmedDown;
+
+	/**
+	 * Create waves.
+	 * @param points X coordinates of waves' edges, <code>count + 1</code> elements
+	 * @param fromY bottom of waves
+	 * @param toY top of waves
+	 * @param random instance of Random
+	 */
+	public WavesModel(float[] points, float fromY, float toY, Random random) {
+		this.random = random;
+		this.count = points.length - 1;
+		this.fromY = fromY;
+		this.toY = toY;
+		this.middleY = Utils.normalizeGl(0f, fromY, toY);
+		fromX = new float[count];
+		toX = new float[count];
+		angles = new float[count];
+		coefficients = new float[count];
+		latestCoefficients = new float[count];
+		prevValues = new float[count];
+		offsets = new float[count];
+		controlX = new float[count];
+		controlY = new float[count];
+		prevControlX = new float[count];
+		prevControlY = new float[count];
+		for (int i = 0; i < count; i++) {
+			fromX[i] = points[i];
+			toX[i] = points[i + 1];
+			// neighbour waves move in opposite directions
+			angles[i] = i % 2 == 0 ? 0 : (float) Math.PI;
+			controlX[i] = Utils.normalizeGl(0f, fromX[i], toX[i]);
+			controlY[i] = middleY;
+			prevControlX[i] = controlX[i];
+			prevControlY[i] = middleY;
+		}
+	}
+
+	/**
+	 * Write static part of waves' vertices.
+	 * @param vertices destination array
+	 * @param firstVertex index of first wave's vertex in destination array
+	 */
+	public void writeVertices(float[] vertices, int firstVertex) {
+		for (int wave = 0; wave < count; wave++) {
+			writeVertices(vertices, (firstVertex + wave * VERTICES_PER_WAVE) * COORDS_PER_VERTEX, wave);
+		}
+		writeCurves(vertices, firstVertex, 1, LevelOfDetail.FINEST);
+	}
+
+	private void writeVertices(float[] vertices, int offset, int wave) {
+		float centerX = Utils.normalizeGl(0f, fromX[wave], toX[wave]);
+
+		// center
+		vertices[offset] = centerX;
+		vertices[offset + 1] = fromY;
+
+		// left bottom footer
+		vertices[offset + COORDS_PER_VERTEX] = fromX[wave];
+		vertices[offset + COORDS_PER_VERTEX + 1] = fromY;
+
+		// left top footer
+		vertices[offset + 2 * COORDS_PER_VERTEX] = fromX[wave];
+		vertices[offset + 2 * COORDS_PER_VERTEX + 1] = middleY;
+
+		// right top footer
+		vertices[offset + FLOATS_PER_WAVE - 2 * COORDS_PER_VERTEX] = toX[wave];
+		vertices[offset + FLOATS_PER_WAVE - 2 * COORDS_PER_VERTEX + 1] = middleY;
+
+		// right bottom footer
+		vertices[offset + FLOATS_PER_WAVE - COORDS_PER_VERTEX] = toX[wave];
+		vertices[offset + FLOATS_PER_WAVE - COORDS_PER_VERTEX + 1] = fromY;
+	}
+
+	/**
+	 * Get number of waves.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Get number of vertices of all waves.
+	 */
+	public int getVerticesCount() {
+		return count * VERTICES_PER_WAVE;
+	}
+
+	/**
+	 * Get number of indices of all waves.
+	 * @param level level of detail
+	 */
+	public int getIndicesCount(int level) {
+		// triangle fan around center: lb, lt, curve points, rt, rb
+		return count * (LevelOfDetail.SEGMENTS[level] + ADDITIONAL_POINTS - 2) * 3;
+	}
+
+	/**
+	 * Write indices of all waves.
+	 * @param indices destination array
+	 * @param offset offset in destination array
+	 * @param firstVertex index of first wave's vertex
+	 * @param level level of detail
+	 */
+	public void writeIndices(short[] indices, int offset, int firstVertex, int level) {
+		int points = LevelOfDetail.SEGMENTS[level];
+		int rightTop = VERTICES_PER_WAVE - 2;
+		for (int wave = 0; wave < count; wave++) {
+			// triangle fan around center point, unused curve slots are skipped
+			int prev = 1;
+			for (int i = 2; i < points + ADDITIONAL_POINTS; i++) {
+				int next = i < points + 3 ? i : rightTop + i - points - 3;
+				indices[offset++] = (short) firstVertex;
+				indices[offset++] = (short) (firstVertex + prev);
+				indices[offset++] = (short) (firstVertex + next);
+				prev = next;
+			}
+			firstVertex += VERTICES_PER_WAVE;
+		}
+	}
+
+	/**
+	 * Update waves positions.
+	 * @param dAngle delta angle
+	 */
+	public void update(float dAngle) {
+		int coefficientBits = pendingCoefficient.getAndSet(NO_COEFFICIENT);
+		if (coefficientBits != NO_COEFFICIENT) {
+			float heightCoefficient = Float.intBitsToFloat(coefficientBits);
+			for (int wave = 0; wave < count; wave++) {
+				latestCoefficients[wave] = Utils.randomize(heightCoefficient, random);
+			}
+		}
+		System.arraycopy(controlX, 0, prevControlX, 0, count);
+		System.arraycopy(controlY, 0, prevControlY, 0, count);
+		boolean calmedDown = true;
+		for (int wave = 0; wave < count; wave++) {
+			float angle = angles[wave] + dAngle;
+			angles[wave] = angle;
+			float coefficient = coefficients[wave];
+			float latestCoefficient = latestCoefficients[wave];
+			if (coefficient == 0 && latestCoefficient > 0) {
+				coefficient = Utils.smooth(0, latestCoefficient, SMOOTH_A);
+			}
+			float val = (float) Math.sin(angle) * coefficient;
+			float prevVal = prevValues[wave];
+			if (prevVal > 0 && val <= 0 || prevVal < 0 && val >= 0) {
+				coefficient = Utils.smooth(coefficient, latestCoefficient, SMOOTH_A);
+				offsets[wave] = random.nextFloat() * 0.3f * (random.nextBoolean() ? 1 : -1);
+			}
+			coefficients[wave] = coefficient;
+			prevValues[wave] = val;
+			calmedDown &= Math.abs(val) < 0.001f;
+			controlX[wave] = Utils.normalizeGl(offsets[wave], fromX[wave], toX[wave]);
+			controlY[wave] = Utils.normalizeGl(val, fromY, toY);
+		}
+		isCalmedDown = calmedDown;
+	}
+
+	/**
+	 * Write Bezier curves of all waves.
+	 * @param vertices destination array
+	 * @param firstVertex index of first wave's vertex in destination array
+	 * @param interpolation interpolation factor between previous and current update in range [0..1]
+	 * @param level level of detail
+	 */
+	public void writeCurves(float[] vertices, int firstVertex, float interpolation, int level) {
+		float[] basis = BEZIER_BASIS[level];
+		int points = LevelOfDetail.SEGMENTS[level];
+		for (int wave = 0; wave < count; wave++) {
+			float startX = fromX[wave];
+			float endX = toX[wave];
+			float posX = Utils.lerp(prevControlX[wave], controlX[wave], interpolation);
+			float posY = Utils.lerp(prevControlY[wave], controlY[wave], interpolation);
+			int offset = (firstVertex + wave * VERTICES_PER_WAVE) * COORDS_PER_VERTEX + SKIP;
+			for (int i = 0; i < points; i++) {
+				float b0 = basis[3 * i];
+				float b1 = basis[3 * i + 1];
+				float b2 = basis[3 * i + 2];
+				vertices[offset] = startX * b0 + posX * b1 + endX * b2;
+				vertices[offset + 1] = middleY * (b0 + b2) + posY * b1;
+				offset += COORDS_PER_VERTEX;
+			}
+		}
+	}
+
+	/**
+	 * Write waves as instances for instanced drawing: start, control and end points of Bezier curve and base Y.
+	 * @param instances destination array
+	 * @param offset offset in destination array
+	 * @param interpolation interpolation factor between previous and current update in range [0..1]
+	 */
+	public void writeInstances(float[] instances, int offset, float interpolation) {
+		for (int wave = 0; wave < count; wave++) {
+			instances[offset] = fromX[wave];
+			instances[offset + 1] = middleY;
+			instances[offset + 2] = Utils.lerp(prevControlX[wave], controlX[wave], interpolation);
+			instances[offset + 3] = Utils.lerp(prevControlY[wave], controlY[wave], interpolation);
+			instances[offset + 4] = toX[wave];
+			instances[offset + 5] = middleY;
+			instances[offset + 6] = fromY;
+			offset += FLOATS_PER_INSTANCE;
+		}
+	}
+
+	/**
+	 * Check if all waves calmed down.
+	 */
+	public boolean isCalmedDown() {
+		return isCalmedDown;
+	}
+
+	/**
+	 * Set height coefficient of all waves, randomized for every wave on next update. Can be called from any thread.
+	 * @param heightCoefficient wave height coefficient
+	 */
+	public void setCoefficient(float heightCoefficient) {
+		pendingCoefficient.set(Float.floatToIntBits(heightCoefficient));
+	}
+}
@@ -0,0 +1,173 @@
+package com.cleveroad.audiovisualization;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * One handler feeding several visualizations.
+ */
+public class DbmHandlerTest {
+
+    private CountingDbmHandler handler;
+    private FakeVisualization mini;
+    private FakeVisualization full;
+
+    @Before
+    public void setUp() throws Exception {
+        handler = new CountingDbmHandler();
+        mini = new FakeVisualization();
+        full = new FakeVisualization();
+        handler.setUp(mini, 2);
+        handler.setUp(full, 4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handler.release();
+    }
+
+    @Test
+    public void dataIsConvertedOnceForLargestLayersCount() throws Exception {
+        // subscribing twice changes nothing
+        handler.setUp(mini, 2);
+        handler.onDataReceived(0.5f);
+        handler.onDataReceived(0.7f);
+        assertEquals(2, handler.conversions);
+        assertEquals(4, handler.layersCount);
+        assertEquals(2, mini.dataCount);
+        assertEquals(2, full.dataCount);
+        assertEquals(4, mini.lastDbm.length);
+        assertEquals(0.7f, mini.lastDbm[0], 0);
+        assertSame(mini.lastDbm, full.lastDbm);
+        assertTrue(mini.rendering);
+        assertTrue(full.rendering);
+    }
+
+    @Test
+    public void handlerIsResumedByFirstAndPausedByLastVisualization() throws Exception {
+        handler.resume(mini);
+        handler.resume(full);
+        handler.resume(full);
+        assertEquals(1, handler.resumes);
+        handler.pause(mini);
+        assertEquals(0, handler.pauses);
+        handler.pause(full);
+        assertEquals(1, handler.pauses);
+    }
+
+    @Test
+    public void tearDownOfResumedVisualizationPausesHandler() throws Exception {
+        handler.resume(mini);
+        assertFalse(handler.tearDown(mini));
+        assertEquals(1, handler.pauses);
+        assertNull(mini.calmDownListener);
+    }
+
+    @Test
+    public void onlyLastTearDownReleasesHandler() throws Exception {
+        assertFalse(handler.tearDown(mini));
+        assertFalse(handler.tearDown(mini));
+        assertTrue(handler.tearDown(full));
+        handler.onDataReceived(1f);
+        assertEquals(0, handler.conversions);
+    }
+
+    @Test
+    public void renderingStopsWhenEveryVisualizationCalmsDown() throws Exception {
+        handler.onDataReceived(1f);
+        handler.calmDown();
+        assertNotNull(mini.calmDownListener);
+        assertNotNull(full.calmDownListener);
+        mini.awaitData(mini.dataCount + 1);
+        mini.calmDownListener.onCalmedDown();
+        assertTrue(full.rendering);
+        // empty values are posted until the other visualization calms down too
+        int dataCount = full.dataCount;
+        full.awaitData(dataCount + 1);
+        full.calmDownListener.onCalmedDown();
+        assertFalse(mini.rendering);
+        assertFalse(full.rendering);
+        for (float value : full.lastDbm) {
+            assertEquals(0, value, 0);
+        }
+        // timer is cancelled, let already running task finish
+        Thread.sleep(50);
+        dataCount = full.dataCount;
+        Thread.sleep(100);
+        assertEquals(dataCount, full.dataCount);
+    }
+
+    private static class CountingDbmHandler extends DbmHandler<Float> {
+
+        private int conversions;
+        private int layersCount;
+        private int resumes;
+        private int pauses;
+
+        @Override
+        protected void onDataReceivedImpl(Float value, int layersCount, float[] dBmArray, float[] ampsArray) {
+            conversions++;
+            this.layersCount = layersCount;
+            for (int i = 0; i < layersCount; i++) {
+                dBmArray[i] = value;
+                ampsArray[i] = value;
+            }
+        }
+
+        @Override
+        public void onResume() {
+            resumes++;
+        }
+
+        @Override
+        public void onPause() {
+            pauses++;
+        }
+
+        void calmDown() {
+            calmDownAndStopRendering();
+        }
+    }
+
+    private static class FakeVisualization implements InnerAudioVisualization {
+
+        private volatile int dataCount;
+        private volatile float[] lastDbm;
+        private volatile boolean rendering;
+        private volatile CalmDownListener calmDownListener;
+
+        @Override
+        public void startRendering() {
+            rendering = true;
+        }
+
+        @Override
+        public void stopRendering() {
+            rendering = false;
+        }
+
+        @Override
+        public void calmDownListener(CalmDownListener calmDownListener) {
+            this.calmDownListener = calmDownListener;
+        }
+
+        @Override
+        public void onDataReceived(float[] dBmArray, float[] ampsArray) {
+            lastDbm = dBmArray;
+            dataCount++;
+        }
+
+        /**
+         * Wait until handler's timer posts enough data.
+         */
+        void awaitData(int count) throws InterruptedException {
+            for (int i = 0; i < 100 && dataCount < count; i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(dataCount >= count);
+        }
+    }
+}
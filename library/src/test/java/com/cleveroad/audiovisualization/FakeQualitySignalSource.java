@@ -0,0 +1,22 @@
+package com.cleveroad.audiovisualization;
+
+/**
+ * Signal source with device state set by test.
+ */
+class FakeQualitySignalSource implements QualitySignalSource {
+
+	boolean thermalThrottling;
+	boolean powerSaveMode;
+	int polls;
+
+	@Override
+	public boolean isThermalThrottling() {
+		return thermalThrottling;
+	}
+
+	@Override
+	public boolean isPowerSaveMode() {
+		polls++;
+		return powerSaveMode;
+	}
+}
@@ -0,0 +1,156 @@
+package com.cleveroad.audiovisualization;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Order and pacing of reductions made by frame load controller, driven by frame timestamps and fake controls.
+ */
+public class FrameLoadControllerTest {
+
+	private static final int MAX_FPS = 60;
+	private static final long FAST_FRAME_NANOS = 1000000000L / MAX_FPS;
+	private static final long SLOW_FRAME_NANOS = 100000000L;
+
+	private final List<String> steps = new ArrayList<>();
+	private FakeControl first;
+	private FakeControl second;
+	private FrameLoadController controller;
+	private long frameTime;
+
+	@Before
+	public void setUp() throws Exception {
+		first = new FakeControl("first", 1);
+		second = new FakeControl("second", 2);
+		controller = new FrameLoadController(MAX_FPS, first, second);
+		frameTime = 1000000000L;
+	}
+
+	private void frames(int count, long intervalNanos) {
+		for (int i = 0; i < count; i++) {
+			controller.onFrame(frameTime);
+			frameTime += intervalNanos;
+		}
+	}
+
+	/**
+	 * Draw frames while frame time is before specified time.
+	 */
+	private void framesUntil(long timeNanos, long intervalNanos) {
+		while (frameTime < timeNanos) {
+			frames(1, intervalNanos);
+		}
+	}
+
+	/**
+	 * Draw slow frames until next step.
+	 * @return time of step
+	 */
+	private long slowFramesUntilStep() {
+		int count = steps.size();
+		while (steps.size() == count) {
+			frames(1, SLOW_FRAME_NANOS);
+		}
+		return frameTime - SLOW_FRAME_NANOS;
+	}
+
+	@Test
+	public void fastFramesChangeNothing() throws Exception {
+		frames(10 * FrameTimeMonitor.SUSTAINED_FRAMES, FAST_FRAME_NANOS);
+		assertTrue(steps.isEmpty());
+	}
+
+	@Test
+	public void controlsAreReducedInOrderOneStepAtATime() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			slowFramesUntilStep();
+		}
+		assertEquals(3, steps.size());
+		assertEquals("first-", steps.get(0));
+		assertEquals("second-", steps.get(1));
+		assertEquals("second-", steps.get(2));
+		// nothing is left to reduce
+		frames(10 * FrameTimeMonitor.SUSTAINED_FRAMES, SLOW_FRAME_NANOS);
+		assertEquals(3, steps.size());
+	}
+
+	@Test
+	public void framesAreNotJudgedWhileStepSettles() throws Exception {
+		long stepTime = slowFramesUntilStep();
+		long nextStepTime = slowFramesUntilStep();
+		assertTrue(nextStepTime - stepTime >= FrameLoadController.SETTLE_INTERVAL_NANOS
+				+ FrameTimeMonitor.SUSTAINED_FRAMES * SLOW_FRAME_NANOS);
+	}
+
+	@Test
+	public void resetStartsSettlePeriod() throws Exception {
+		frames(FrameTimeMonitor.SUSTAINED_FRAMES, SLOW_FRAME_NANOS);
+		controller.reset();
+		long resetTime = frameTime;
+		long stepTime = slowFramesUntilStep();
+		assertTrue(stepTime - resetTime >= FrameLoadController.SETTLE_INTERVAL_NANOS
+				+ FrameTimeMonitor.SUSTAINED_FRAMES * SLOW_FRAME_NANOS);
+	}
+
+	@Test
+	public void reductionsAreUndoneInReverseOrder() throws Exception {
+		slowFramesUntilStep();
+		long stepTime = slowFramesUntilStep();
+		framesUntil(stepTime + FrameLoadController.RECOVERY_INTERVAL_NANOS, FAST_FRAME_NANOS);
+		assertEquals(2, steps.size());
+		frames(1, FAST_FRAME_NANOS);
+		assertEquals("second+", steps.get(2));
+		framesUntil(frameTime + FrameLoadController.RECOVERY_INTERVAL_NANOS, FAST_FRAME_NANOS);
+		assertEquals("first+", steps.get(3));
+		assertEquals(0, first.level);
+		assertEquals(0, second.level);
+		frames((int) (2 * FrameLoadController.RECOVERY_INTERVAL_NANOS / FAST_FRAME_NANOS), FAST_FRAME_NANOS);
+		assertEquals(4, steps.size());
+	}
+
+	@Test
+	public void controlRestoredElsewhereIsSkipped() throws Exception {
+		slowFramesUntilStep();
+		long stepTime = slowFramesUntilStep();
+		second.level = 0;
+		framesUntil(stepTime + FrameLoadController.RECOVERY_INTERVAL_NANOS + FAST_FRAME_NANOS, FAST_FRAME_NANOS);
+		assertEquals("first+", steps.get(2));
+	}
+
+	private class FakeControl implements FrameLoadController.Control {
+
+		private final String name;
+		private final int maxLevel;
+		int level;
+
+		FakeControl(String name, int maxLevel) {
+			this.name = name;
+			this.maxLevel = maxLevel;
+		}
+
+		@Override
+		public boolean reduce() {
+			if (level == maxLevel) {
+				return false;
+			}
+			level++;
+			steps.add(name + "-");
+			return true;
+		}
+
+		@Override
+		public boolean restore() {
+			if (level == 0) {
+				return false;
+			}
+			level--;
+			steps.add(name + "+");
+			return true;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.cleveroad.audiovisualization;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Per-frame OpenGL calls of OpenGL ES 3.0 path, recorded with {@link RecordingGLApi}.
+ */
+public class GLInstancedRendererTest {
+
+	private static final float FRAME_MILLIS = 1000f / 60;
+	private static final float RATIO_Y = (float) TestConfigurations.SURFACE_WIDTH / TestConfigurations.SURFACE_HEIGHT;
+
+	private GLAudioVisualizationView.Configuration configuration;
+	private RecordingGLApi gl;
+	private GLResources resources;
+	private GLInstancedRenderer renderer;
+	private SceneModel scene;
+
+	@Before
+	public void setUp() throws Exception {
+		configuration = TestConfigurations.create();
+		gl = new RecordingGLApi("OpenGL ES 3.0");
+	}
+
+	private void createRenderer(boolean overdrawReduction) {
+		resources = new GLResources(gl);
+		renderer = new GLInstancedRenderer(resources, new NativeArena(), configuration, overdrawReduction);
+		scene = new SceneModel(configuration, TestConfigurations.SCREEN_HEIGHT, new Random(configuration.randomSeed), renderer.getOutputs());
+		assertTrue(renderer.init(scene));
+		renderer.onSurfaceChanged(TestConfigurations.SURFACE_WIDTH, TestConfigurations.SURFACE_HEIGHT);
+	}
+
+	private void drawFrames(int count) {
+		for (int i = 0; i < count; i++) {
+			scene.update(FRAME_MILLIS, RATIO_Y);
+			renderer.draw(scene, RATIO_Y);
+		}
+	}
+
+	private void drawRecordedFrame() {
+		gl.reset();
+		drawFrames(1);
+	}
+
+	/**
+	 * Get number of bytes of live wave and bubble instances of all layers.
+	 */
+	private int getInstanceBytes() {
+		int floats = 0;
+		for (LayerModel layer : scene.getLayers()) {
+			floats += layer.getWaveInstancesCount() * WavesModel.FLOATS_PER_INSTANCE;
+			floats += Math.min(layer.getBubblesCount(), configuration.bubblesPerLayer) * LayerModel.FLOATS_PER_BUBBLE;
+		}
+		return floats * GLShape.SIZE_OF_FLOAT;
+	}
+
+	private int getLayersWithBubbles() {
+		int count = 0;
+		for (LayerModel layer : scene.getLayers()) {
+			if (layer.getBubblesCount() > 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void initCreatesEveryObjectOnce() throws Exception {
+		createRenderer(false);
+		int objects = gl.getLiveObjectsCount();
+		assertTrue(objects > 0);
+		assertEquals(objects, resources.getCount());
+		drawFrames(2);
+		assertEquals(objects, gl.getLiveObjectsCount());
+		resources.release();
+		assertEquals(0, gl.getLiveObjectsCount());
+	}
+
+	@Test
+	public void calmFrameDrawsEveryLayerWithOneInstancedCall() throws Exception {
+		createRenderer(false);
+		drawFrames(1);
+		drawRecordedFrame();
+		int layers = configuration.layersCount;
+		assertEquals(layers, gl.getDrawCalls());
+		assertEquals(layers, gl.getCount("glDrawArraysInstanced"));
+		// only live waves of every layer are streamed into buffer object, no client-side arrays are used
+		assertEquals(layers, gl.getBufferUploads());
+		assertEquals(getInstanceBytes(), gl.getUploadedBytes());
+		assertEquals(0, gl.getClientArrayBytes());
+		assertEquals(0, gl.getBlendToggles());
+		// attribute and uniform locations are resolved once in init
+		assertEquals(0, gl.getCount("glGetAttribLocation"));
+		assertEquals(0, gl.getCount("glGetUniformLocation"));
+		assertEquals(0, gl.getCount("glVertexAttribPointer"));
+		assertEquals(3 * layers + 3, gl.getStateChanges());
+	}
+
+	@Test
+	public void framesMakeTheSameCalls() throws Exception {
+		createRenderer(false);
+		drawFrames(1);
+		drawRecordedFrame();
+		int stateChanges = gl.getStateChanges();
+		long uploadedBytes = gl.getUploadedBytes();
+		drawRecordedFrame();
+		assertEquals(stateChanges, gl.getStateChanges());
+		assertEquals(uploadedBytes, gl.getUploadedBytes());
+	}
+
+	@Test
+	public void colorsAreUploadedOnlyWhenChanged() throws Exception {
+		createRenderer(false);
+		int colorBytes = configuration.layersCount * 4 * GLShape.SIZE_OF_FLOAT;
+		drawRecordedFrame();
+		assertEquals(getInstanceBytes() + colorBytes, gl.getUploadedBytes());
+		drawRecordedFrame();
+		assertEquals(getInstanceBytes(), gl.getUploadedBytes());
+		scene.setColors(configuration.layerColors);
+		drawRecordedFrame();
+		assertEquals(getInstanceBytes() + colorBytes, gl.getUploadedBytes());
+	}
+
+	@Test
+	public void bubblesAreDrawnWithBlending() throws Exception {
+		createRenderer(false);
+		for (int i = 0; i < 10; i++) {
+			scene.onDataReceived(TestConfigurations.fill(configuration, 0.9f), TestConfigurations.fill(configuration, 1f + i));
+			drawFrames(1);
+		}
+		drawRecordedFrame();
+		int layers = configuration.layersCount;
+		int bubbleLayers = getLayersWithBubbles();
+		assertTrue(bubbleLayers > 0);
+		assertEquals(layers + bubbleLayers, gl.getDrawCalls());
+		assertEquals(2 * bubbleLayers, gl.getBlendToggles());
+		assertEquals(layers + bubbleLayers, gl.getBufferUploads());
+		assertEquals(getInstanceBytes(), gl.getUploadedBytes());
+		assertEquals(0, gl.getClientArrayBytes());
+	}
+
+	@Test
+	public void overdrawReductionUsesStencilOncePerFrame() throws Exception {
+		createRenderer(true);
+		drawFrames(1);
+		drawRecordedFrame();
+		int layers = configuration.layersCount;
+		assertEquals(layers, gl.getDrawCalls());
+		assertEquals(1, gl.getCount("glEnable"));
+		assertEquals(1, gl.getCount("glDisable"));
+		assertEquals(layers, gl.getCount("glStencilFunc"));
+	}
+}
@@ -0,0 +1,204 @@
+package com.cleveroad.audiovisualization;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Per-frame OpenGL calls of OpenGL ES 2.0 path, recorded with {@link RecordingGLApi}.
+ */
+public class GLRendererTest {
+
+	private static final long FRAME_NANOS = 16666667L;
+
+	private GLAudioVisualizationView.Configuration configuration;
+	private RecordingGLApi gl;
+	private GLRenderer renderer;
+	private long frameTime;
+
+	@Before
+	public void setUp() throws Exception {
+		configuration = TestConfigurations.create();
+		gl = new RecordingGLApi();
+	}
+
+	private void createRenderer() {
+		renderer = new GLRenderer(configuration, TestConfigurations.SCREEN_HEIGHT, gl);
+		renderer.onSurfaceCreated(null, null);
+		renderer.onSurfaceChanged(null, TestConfigurations.SURFACE_WIDTH, TestConfigurations.SURFACE_HEIGHT);
+	}
+
+	private void drawFrames(int count) {
+		for (int i = 0; i < count; i++) {
+			frameTime += FRAME_NANOS;
+			renderer.drawFrame(frameTime);
+		}
+	}
+
+	private void drawRecordedFrame() {
+		gl.reset();
+		drawFrames(1);
+	}
+
+	private void sendLoudData() {
+		for (int i = 0; i < 10; i++) {
+			renderer.onDataReceived(TestConfigurations.fill(configuration, 0.9f), TestConfigurations.fill(configuration, 1f + i));
+			drawFrames(1);
+		}
+	}
+
+	@Test
+	public void calmFrameDrawsEveryLayerOnce() throws Exception {
+		createRenderer();
+		drawFrames(1);
+		drawRecordedFrame();
+		int layers = configuration.layersCount;
+		assertEquals(1, gl.getCount("glClear"));
+		assertEquals(layers, gl.getDrawCalls());
+		assertEquals(layers, gl.getCount("glDrawElements"));
+		// positions are passed as client-side arrays, nothing is uploaded into buffer objects
+		assertEquals(layers, gl.getBufferUploads());
+		assertEquals(0, gl.getUploadedBytes());
+		assertTrue(gl.getClientArrayBytes() > 0);
+		assertEquals(0, gl.getBlendToggles());
+		assertEquals(4 * layers, gl.getStateChanges());
+	}
+
+	@Test
+	public void programsAreLinkedOnlyOnFirstFrame() throws Exception {
+		createRenderer();
+		drawFrames(1);
+		int programs = gl.getCount("glCreateProgram");
+		assertTrue(programs > 0);
+		drawRecordedFrame();
+		assertEquals(0, gl.getCount("glCreateProgram"));
+		assertEquals(0, gl.getCount("glCreateShader"));
+	}
+
+	@Test
+	public void frameAfterReleaseCreatesObjectsAgain() throws Exception {
+		createRenderer();
+		drawFrames(1);
+		int objects = gl.getLiveObjectsCount();
+		renderer.release();
+		assertEquals(0, gl.getLiveObjectsCount());
+		drawRecordedFrame();
+		assertEquals(objects, gl.getLiveObjectsCount());
+		assertEquals(objects, renderer.getGLObjectsCount());
+		assertEquals(configuration.layersCount, gl.getDrawCalls());
+	}
+
+	@Test
+	public void framesMakeTheSameCalls() throws Exception {
+		createRenderer();
+		drawFrames(1);
+		drawRecordedFrame();
+		int drawCalls = gl.getDrawCalls();
+		int stateChanges = gl.getStateChanges();
+		int uploads = gl.getBufferUploads();
+		long clientArrayBytes = gl.getClientArrayBytes();
+		drawRecordedFrame();
+		assertEquals(drawCalls, gl.getDrawCalls());
+		assertEquals(stateChanges, gl.getStateChanges());
+		assertEquals(uploads, gl.getBufferUploads());
+		assertEquals(clientArrayBytes, gl.getClientArrayBytes());
+	}
+
+	@Test
+	public void bubblesAreDrawnWithBlending() throws Exception {
+		createRenderer();
+		sendLoudData();
+		drawRecordedFrame();
+		int layers = configuration.layersCount;
+		int bubbleDraws = gl.getDrawCalls() - layers;
+		assertTrue(bubbleDraws > 0);
+		assertTrue(bubbleDraws <= layers);
+		// blending is enabled only around bubbles of every layer
+		assertEquals(2 * bubbleDraws, gl.getBlendToggles());
+		assertEquals(layers + bubbleDraws, gl.getBufferUploads());
+		assertEquals(0, gl.getUploadedBytes());
+	}
+
+	@Test
+	public void overdrawReductionUsesStencilOncePerFrame() throws Exception {
+		configuration.overdrawReduction = true;
+		gl.setStencilBits(8);
+		createRenderer();
+		drawFrames(1);
+		drawRecordedFrame();
+		int layers = configuration.layersCount;
+		assertEquals(layers, gl.getDrawCalls());
+		assertEquals(1, gl.getCount("glEnable"));
+		assertEquals(1, gl.getCount("glDisable"));
+		assertEquals(layers, gl.getCount("glStencilFunc"));
+		assertEquals(2, gl.getCount("glStencilOp"));
+	}
+
+	@Test
+	public void overdrawReductionNeedsStencilBuffer() throws Exception {
+		configuration.overdrawReduction = true;
+		createRenderer();
+		drawFrames(1);
+		drawRecordedFrame();
+		assertEquals(0, gl.getCount("glEnable"));
+		assertEquals(0, gl.getCount("glStencilFunc"));
+	}
+
+	/**
+	 * Draw one second of loud data, so every layer has bubbles, then record one more frame.
+	 */
+	private void drawLoudSecond() {
+		createRenderer();
+		for (int i = 0; i < 60; i++) {
+			renderer.onDataReceived(TestConfigurations.fill(configuration, 0.9f), TestConfigurations.fill(configuration, 1f + i * 0.1f));
+			drawFrames(1);
+		}
+		drawRecordedFrame();
+	}
+
+	/**
+	 * Draw loud frame, rasterizing it on 108x192 grid of samples.
+	 */
+	private void drawMeasuredFrame(boolean overdrawReduction) {
+		configuration.overdrawReduction = overdrawReduction;
+		gl = new RecordingGLApi().setLogging(false).setStencilBits(overdrawReduction ? 8 : 0).setOverdrawGrid(108, 192);
+		drawLoudSecond();
+	}
+
+	@Test
+	public void overdrawReductionShadesFewerFragments() throws Exception {
+		drawMeasuredFrame(false);
+		float overdraw = gl.getOverdraw();
+		float coverage = gl.getCoverage();
+		drawMeasuredFrame(true);
+		assertTrue(coverage > 0);
+		assertTrue(gl.getOverdraw() < overdraw);
+		// hidden fragments are skipped, visible ones are the same
+		assertEquals(coverage, gl.getCoverage(), 0);
+	}
+
+	@Test
+	public void wavePositionsHaveTwoCoordinates() throws Exception {
+		createRenderer();
+		drawFrames(1);
+		drawRecordedFrame();
+		// footer quad and waves of every layer
+		int vertices = 4 + configuration.wavesCount * WavesModel.VERTICES_PER_WAVE;
+		assertEquals(2, SceneModel.COORDS_PER_VERTEX);
+		assertEquals(configuration.layersCount * vertices * SceneModel.COORDS_PER_VERTEX * GLShape.SIZE_OF_FLOAT,
+				gl.getClientArrayBytes());
+	}
+
+	@Test
+	public void compactVerticesHalveClientArrays() throws Exception {
+		drawLoudSecond();
+		long floatBytes = gl.getClientArrayBytes();
+		assertTrue(floatBytes > 0);
+		configuration.compactVertices = true;
+		gl = new RecordingGLApi();
+		drawLoudSecond();
+		// scene is seeded, so both frames have the same vertices
+		assertEquals(floatBytes * GLShape.SIZE_OF_SHORT / GLShape.SIZE_OF_FLOAT, gl.getClientArrayBytes());
+	}
+}
@@ -0,0 +1,87 @@
+package com.cleveroad.audiovisualization;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Programs and objects registry: sharing, failures and release.
+ */
+public class GLResourcesTest {
+
+	private static final String VERTEX_SHADER_CODE = "void main() { gl_Position = vec4(0.0); }";
+	private static final String FRAGMENT_SHADER_CODE = "void main() { gl_FragColor = vec4(1.0); }";
+
+	private RecordingGLApi gl;
+	private GLResources resources;
+
+	@Before
+	public void setUp() throws Exception {
+		gl = new RecordingGLApi();
+		resources = new GLResources(gl);
+	}
+
+	@Test
+	public void programIsLinkedOncePerSource() throws Exception {
+		int program = resources.getProgram(VERTEX_SHADER_CODE, FRAGMENT_SHADER_CODE);
+		assertNotEquals(0, program);
+		assertEquals(program, resources.getProgram(VERTEX_SHADER_CODE, FRAGMENT_SHADER_CODE));
+		assertEquals(1, gl.getCount("glCreateProgram"));
+		// shaders are deleted right after linking
+		assertEquals(1, resources.getCount());
+		assertEquals(1, gl.getLiveObjectsCount());
+	}
+
+	@Test
+	public void programIsTakenFromSharedRegistry() throws Exception {
+		GLResources own = new GLResources(resources);
+		int program = own.getProgram(VERTEX_SHADER_CODE, FRAGMENT_SHADER_CODE);
+		assertEquals(program, resources.getProgram(VERTEX_SHADER_CODE, FRAGMENT_SHADER_CODE));
+		assertEquals(0, own.getCount());
+		own.release();
+		assertEquals(1, gl.getLiveObjectsCount());
+		resources.release();
+		assertEquals(0, gl.getLiveObjectsCount());
+	}
+
+	@Test
+	public void compileFailureIsLoggedAndNotCached() throws Exception {
+		gl.setCompileFailures(true);
+		assertEquals(0, resources.getProgram(VERTEX_SHADER_CODE, FRAGMENT_SHADER_CODE));
+		assertEquals(1, gl.getCount("glGetShaderInfoLog"));
+		assertEquals(0, gl.getCount("glCreateProgram"));
+		assertEquals(0, resources.getCount());
+		assertEquals(0, gl.getLiveObjectsCount());
+		gl.setCompileFailures(false);
+		assertNotEquals(0, resources.getProgram(VERTEX_SHADER_CODE, FRAGMENT_SHADER_CODE));
+		assertEquals(1, resources.getCount());
+	}
+
+	@Test
+	public void linkFailureIsLoggedAndNotCached() throws Exception {
+		gl.setLinkFailures(true);
+		assertEquals(0, resources.getProgram(VERTEX_SHADER_CODE, FRAGMENT_SHADER_CODE));
+		assertEquals(1, gl.getCount("glGetProgramInfoLog"));
+		assertEquals(0, resources.getCount());
+		assertEquals(0, gl.getLiveObjectsCount());
+		gl.setLinkFailures(false);
+		assertNotEquals(0, resources.getProgram(VERTEX_SHADER_CODE, FRAGMENT_SHADER_CODE));
+		assertEquals(2, gl.getCount("glCreateProgram"));
+	}
+
+	@Test
+	public void failedShapesDoNotCompileEveryFrame() throws Exception {
+		gl.setCompileFailures(true);
+		GLRenderer renderer = new GLRenderer(TestConfigurations.create(), TestConfigurations.SCREEN_HEIGHT, gl);
+		renderer.onSurfaceCreated(null, null);
+		renderer.onSurfaceChanged(null, TestConfigurations.SURFACE_WIDTH, TestConfigurations.SURFACE_HEIGHT);
+		renderer.drawFrame(16666667L);
+		int shaders = gl.getCount("glCreateShader");
+		assertTrue(shaders > 0);
+		renderer.drawFrame(33333333L);
+		renderer.drawFrame(50000000L);
+		assertEquals(shaders, gl.getCount("glCreateShader"));
+		assertEquals(0, renderer.getGLObjectsCount());
+	}
+}
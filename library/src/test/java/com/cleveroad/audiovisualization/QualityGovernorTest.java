@@ -0,0 +1,124 @@
+package com.cleveroad.audiovisualization;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tier changes of quality governor driven by load steps and fake device state.
+ */
+public class QualityGovernorTest {
+
+	private static final int MAX_FPS = 60;
+	private static final long FAST_FRAME_NANOS = 1000000000L / MAX_FPS;
+
+	private FakeQualitySignalSource signalSource;
+	private QualityGovernor governor;
+	private long frameTime;
+	private int changes;
+
+	@Before
+	public void setUp() throws Exception {
+		signalSource = new FakeQualitySignalSource();
+		governor = new QualityGovernor(MAX_FPS, signalSource);
+		frameTime = 1000000000L;
+	}
+
+	private void frames(int count, long intervalNanos) {
+		for (int i = 0; i < count; i++) {
+			if (governor.onFrame(frameTime)) {
+				changes++;
+			}
+			frameTime += intervalNanos;
+		}
+	}
+
+	@Test
+	public void framesKeepFullTier() throws Exception {
+		frames(10 * FrameTimeMonitor.SUSTAINED_FRAMES, FAST_FRAME_NANOS);
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_FULL, governor.getTier());
+		assertEquals(0, changes);
+		assertEquals(MAX_FPS, governor.getMaxFps());
+		assertEquals(0, governor.getLodBias());
+		assertEquals(16, governor.getBubblesLimit(16));
+	}
+
+	@Test
+	public void loadTierIsRaisedOneStepAtATime() throws Exception {
+		int[] tiers = {
+				GLAudioVisualizationView.QUALITY_TIER_LOW_FPS,
+				GLAudioVisualizationView.QUALITY_TIER_LOW_DETAIL,
+				GLAudioVisualizationView.QUALITY_TIER_FEW_BUBBLES,
+				GLAudioVisualizationView.QUALITY_TIER_SMALL_CAPTURE,
+		};
+		for (int tier : tiers) {
+			assertTrue(governor.raiseLoadTier());
+			assertEquals(tier, governor.getTier());
+		}
+		assertEquals(QualityGovernor.REDUCED_FPS, governor.getMaxFps());
+		assertEquals(1, governor.getLodBias());
+		assertEquals(8, governor.getBubblesLimit(16));
+		// there's no tier above the last one
+		assertFalse(governor.raiseLoadTier());
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_SMALL_CAPTURE, governor.getTier());
+	}
+
+	@Test
+	public void loadTierIsLoweredOneStepAtATime() throws Exception {
+		governor.raiseLoadTier();
+		governor.raiseLoadTier();
+		assertTrue(governor.lowerLoadTier());
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_LOW_FPS, governor.getTier());
+		assertTrue(governor.lowerLoadTier());
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_FULL, governor.getTier());
+		assertFalse(governor.lowerLoadTier());
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_FULL, governor.getTier());
+	}
+
+	@Test
+	public void powerSaveModeKeepsFloor() throws Exception {
+		signalSource.powerSaveMode = true;
+		frames(1, FAST_FRAME_NANOS);
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_LOW_FPS, governor.getTier());
+		// floor is kept however long frames are fast
+		frames((int) (60000000000L / FAST_FRAME_NANOS), FAST_FRAME_NANOS);
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_LOW_FPS, governor.getTier());
+		signalSource.powerSaveMode = false;
+		frames((int) (QualityGovernor.SIGNAL_POLL_INTERVAL_NANOS / FAST_FRAME_NANOS) + 1, FAST_FRAME_NANOS);
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_FULL, governor.getTier());
+	}
+
+	@Test
+	public void thermalThrottlingKeepsHigherFloor() throws Exception {
+		signalSource.powerSaveMode = true;
+		signalSource.thermalThrottling = true;
+		frames(1, FAST_FRAME_NANOS);
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_FEW_BUBBLES, governor.getTier());
+		signalSource.thermalThrottling = false;
+		frames((int) (QualityGovernor.SIGNAL_POLL_INTERVAL_NANOS / FAST_FRAME_NANOS) + 1, FAST_FRAME_NANOS);
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_LOW_FPS, governor.getTier());
+	}
+
+	@Test
+	public void loadRaisesTierAboveFloor() throws Exception {
+		signalSource.powerSaveMode = true;
+		frames(1, FAST_FRAME_NANOS);
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_LOW_FPS, governor.getTier());
+		assertTrue(governor.raiseLoadTier());
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_LOW_DETAIL, governor.getTier());
+		assertTrue(governor.lowerLoadTier());
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_LOW_FPS, governor.getTier());
+		// floor can't be lowered by load
+		assertFalse(governor.lowerLoadTier());
+		assertEquals(GLAudioVisualizationView.QUALITY_TIER_LOW_FPS, governor.getTier());
+	}
+
+	@Test
+	public void signalsArePolledOncePerInterval() throws Exception {
+		int framesPerPoll = (int) (QualityGovernor.SIGNAL_POLL_INTERVAL_NANOS / FAST_FRAME_NANOS);
+		frames(10 * framesPerPoll, FAST_FRAME_NANOS);
+		assertTrue(signalSource.polls <= 11);
+		assertTrue(signalSource.polls >= 9);
+	}
+}
@@ -0,0 +1,714 @@
+package com.cleveroad.audiovisualization;
+
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link GLApi} implementation that doesn't draw anything but records and counts calls. Can be used on JVM
+ * for checking how many draw calls, state changes and buffer uploads renderer makes per frame.
+ * Optionally rasterizes draws with client-side position arrays (OpenGL ES 2.0 path) into a grid of samples
+ * with stencil test emulated, which gives overdraw factor (number of shaded fragments per pixel) and coverage.
+ */
+class RecordingGLApi implements GLApi {
+
+	private final List<String> calls = new ArrayList<>();
+	private final Map<String, Integer> counts = new HashMap<>();
+	private final String version;
+	private boolean logging = true;
+	private int lastName;
+	private final Set<Integer> liveObjects = new HashSet<>();
+	private int drawCalls;
+	private int stateChanges;
+	private int blendToggles;
+	private int bufferUploads;
+	private long uploadedBytes;
+	private int stencilBits;
+	private int viewportWidth;
+	private int viewportHeight;
+	private long clientArrayBytes;
+	private FloatBuffer positions;
+	private ShortBuffer compactPositions;
+	private int positionSize;
+	private int positionStride;
+	private boolean stencilTest;
+	private int stencilFunc = GLES20.GL_ALWAYS;
+	private int stencilRef;
+	private int stencilMask = 0xFF;
+	private int stencilPassOp = GLES20.GL_KEEP;
+	private int gridColumns;
+	private int gridRows;
+	private int[] stencil;
+	private boolean[] covered;
+	private long shadedSamples;
+	private int coveredSamples;
+	private boolean compileFailures;
+	private boolean linkFailures;
+
+	/**
+	 * Create recorder pretending to be OpenGL ES 2.0 context.
+	 */
+	public RecordingGLApi() {
+		this("OpenGL ES 2.0");
+	}
+
+	/**
+	 * Create recorder.
+	 * @param version value returned for {@link GLES20#GL_VERSION}, for example "OpenGL ES 3.0"
+	 */
+	public RecordingGLApi(String version) {
+		this.version = version;
+	}
+
+	/**
+	 * Enable or disable keeping list of calls. Counters are updated anyway.
+	 */
+	public RecordingGLApi setLogging(boolean logging) {
+		this.logging = logging;
+		return this;
+	}
+
+	/**
+	 * Set number of stencil bits reported for surface, 0 by default.
+	 */
+	public RecordingGLApi setStencilBits(int stencilBits) {
+		this.stencilBits = stencilBits;
+		return this;
+	}
+
+	/**
+	 * Make every shader fail to compile, for checking error handling.
+	 */
+	public RecordingGLApi setCompileFailures(boolean compileFailures) {
+		this.compileFailures = compileFailures;
+		return this;
+	}
+
+	/**
+	 * Make every program fail to link, for checking error handling.
+	 */
+	public RecordingGLApi setLinkFailures(boolean linkFailures) {
+		this.linkFailures = linkFailures;
+		return this;
+	}
+
+	/**
+	 * Enable overdraw measurement. Every draw with client-side position array is rasterized into grid of samples
+	 * covering viewport. Draws using buffer objects (OpenGL ES 3.0 path) can't be measured.
+	 * @param columns number of samples horizontally
+	 * @param rows number of samples vertically
+	 */
+	public RecordingGLApi setOverdrawGrid(int columns, int rows) {
+		this.gridColumns = columns;
+		this.gridRows = rows;
+		this.stencil = new int[columns * rows];
+		this.covered = new boolean[columns * rows];
+		return this;
+	}
+
+	/**
+	 * Get average number of fragments shaded per pixel since last {@link #reset()}, clears not included.
+	 * Available only if overdraw grid was set.
+	 */
+	public float getOverdraw() {
+		return gridColumns == 0 ? 0 : (float) shadedSamples / (gridColumns * gridRows);
+	}
+
+	/**
+	 * Get fraction of pixels shaded at least once since last {@link #reset()}, clears not included.
+	 * Available only if overdraw grid was set.
+	 */
+	public float getCoverage() {
+		return gridColumns == 0 ? 0 : (float) coveredSamples / (gridColumns * gridRows);
+	}
+
+	/**
+	 * Clear recorded calls and counters, for example before drawing next frame.
+	 */
+	public void reset() {
+		shadedSamples = 0;
+		coveredSamples = 0;
+		if (covered != null) {
+			Arrays.fill(covered, false);
+		}
+		calls.clear();
+		counts.clear();
+		drawCalls = 0;
+		stateChanges = 0;
+		blendToggles = 0;
+		bufferUploads = 0;
+		uploadedBytes = 0;
+		clientArrayBytes = 0;
+	}
+
+	/**
+	 * Get names of recorded calls in order they were made.
+	 */
+	public List<String> getCalls() {
+		return Collections.unmodifiableList(calls);
+	}
+
+	/**
+	 * Get number of calls of specified method.
+	 * @param name name of method, for example "glDrawElements"
+	 */
+	public int getCount(String name) {
+		Integer count = counts.get(name);
+		return count == null ? 0 : count;
+	}
+
+	/**
+	 * Get number of draw calls, instanced ones included.
+	 */
+	public int getDrawCalls() {
+		return drawCalls;
+	}
+
+	/**
+	 * Get number of calls changing GL state: capabilities, blending, programs, bindings and attributes.
+	 */
+	public int getStateChanges() {
+		return stateChanges;
+	}
+
+	/**
+	 * Get number of {@link GLES20#GL_BLEND} enable and disable calls.
+	 */
+	public int getBlendToggles() {
+		return blendToggles;
+	}
+
+	/**
+	 * Get number of buffer uploads: buffer data calls and client-side attribute arrays.
+	 */
+	public int getBufferUploads() {
+		return bufferUploads;
+	}
+
+	/**
+	 * Get number of bytes uploaded into buffer objects.
+	 */
+	public long getUploadedBytes() {
+		return uploadedBytes;
+	}
+
+	/**
+	 * Get number of shaders, programs, buffers and vertex arrays created and not deleted yet. Not cleared by
+	 * {@link #reset()}.
+	 */
+	public int getLiveObjectsCount() {
+		return liveObjects.size();
+	}
+
+	/**
+	 * Get size of client-side attribute arrays passed since last {@link #reset()}, whole remaining part of buffer
+	 * is counted.
+	 */
+	public long getClientArrayBytes() {
+		return clientArrayBytes;
+	}
+
+	private void record(String name) {
+		if (logging) {
+			calls.add(name);
+		}
+		Integer count = counts.get(name);
+		counts.put(name, count == null ? 1 : count + 1);
+	}
+
+	/**
+	 * Rasterize triangle given in normalized device coordinates, counting samples that pass stencil test.
+	 */
+	private void rasterize(float x0, float y0, float x1, float y1, float x2, float y2) {
+		float area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+		if (area == 0) {
+			return;
+		}
+		int fromColumn = Math.max(toColumn(Math.min(x0, Math.min(x1, x2))), 0);
+		int toColumn = Math.min(toColumn(Math.max(x0, Math.max(x1, x2))), gridColumns - 1);
+		int fromRow = Math.max(toRow(Math.min(y0, Math.min(y1, y2))), 0);
+		int toRow = Math.min(toRow(Math.max(y0, Math.max(y1, y2))), gridRows - 1);
+		for (int row = fromRow; row <= toRow; row++) {
+			float y = (row + 0.5f) / gridRows * 2 - 1;
+			for (int column = fromColumn; column <= toColumn; column++) {
+				float x = (column + 0.5f) / gridColumns * 2 - 1;
+				float w0 = ((x1 - x) * (y2 - y) - (x2 - x) * (y1 - y)) / area;
+				float w1 = ((x2 - x) * (y0 - y) - (x0 - x) * (y2 - y)) / area;
+				float w2 = 1 - w0 - w1;
+				// sample on shared edge belongs to one triangle only
+				if (w0 > 0 && w1 > 0 && w2 >= 0) {
+					shade(row * gridColumns + column);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rasterize square point sprite.
+	 */
+	private void rasterizePoint(float x, float y, float sizePixels) {
+		float halfWidth = viewportWidth == 0 ? 0 : sizePixels / viewportWidth;
+		float halfHeight = viewportHeight == 0 ? 0 : sizePixels / viewportHeight;
+		int fromColumn = Math.max(toColumn(x - halfWidth), 0);
+		int toColumn = Math.min(toColumn(x + halfWidth), gridColumns - 1);
+		int fromRow = Math.max(toRow(y - halfHeight), 0);
+		int toRow = Math.min(toRow(y + halfHeight), gridRows - 1);
+		for (int row = fromRow; row <= toRow; row++) {
+			for (int column = fromColumn; column <= toColumn; column++) {
+				shade(row * gridColumns + column);
+			}
+		}
+	}
+
+	private int toColumn(float x) {
+		return (int) Math.floor((x + 1) / 2 * gridColumns);
+	}
+
+	private int toRow(float y) {
+		return (int) Math.floor((y + 1) / 2 * gridRows);
+	}
+
+	private void shade(int sample) {
+		if (stencilTest) {
+			int ref = stencilRef & stencilMask;
+			int value = stencil[sample] & stencilMask;
+			boolean passed;
+			switch (stencilFunc) {
+				case GLES20.GL_NEVER:
+					passed = false;
+					break;
+				case GLES20.GL_LESS:
+					passed = ref < value;
+					break;
+				case GLES20.GL_LEQUAL:
+					passed = ref <= value;
+					break;
+				case GLES20.GL_GREATER:
+					passed = ref > value;
+					break;
+				case GLES20.GL_GEQUAL:
+					passed = ref >= value;
+					break;
+				case GLES20.GL_EQUAL:
+					passed = ref == value;
+					break;
+				case GLES20.GL_NOTEQUAL:
+					passed = ref != value;
+					break;
+				default:
+					passed = true;
+					break;
+			}
+			if (!passed) {
+				return;
+			}
+			if (stencilPassOp == GLES20.GL_REPLACE) {
+				stencil[sample] = stencilRef;
+			}
+		}
+		shadedSamples++;
+		if (!covered[sample]) {
+			covered[sample] = true;
+			coveredSamples++;
+		}
+	}
+
+	private float getPosition(int vertex, int component) {
+		if (compactPositions != null) {
+			// compact coordinates are scaled back in vertex shader
+			return compactPositions.get(vertex * positionStride + component) * GLVertexArray.COMPACT_RANGE / Short.MAX_VALUE;
+		}
+		return positions.get(vertex * positionStride + component);
+	}
+
+	private boolean canRasterize() {
+		return gridColumns > 0 && (positions != null || compactPositions != null);
+	}
+
+	private int create() {
+		liveObjects.add(++lastName);
+		return lastName;
+	}
+
+	private void generate(int n, int[] names, int offset) {
+		for (int i = 0; i < n; i++) {
+			names[offset + i] = create();
+		}
+	}
+
+	private void delete(int n, int[] names, int offset) {
+		for (int i = 0; i < n; i++) {
+			liveObjects.remove(names[offset + i]);
+		}
+	}
+
+	@Override
+	public int glCreateShader(int type) {
+		record("glCreateShader");
+		return create();
+	}
+
+	@Override
+	public void glShaderSource(int shader, String string) {
+		record("glShaderSource");
+	}
+
+	@Override
+	public void glCompileShader(int shader) {
+		record("glCompileShader");
+	}
+
+	@Override
+	public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+		record("glGetShaderiv");
+		params[offset] = compileFailures ? GLES20.GL_FALSE : GLES20.GL_TRUE;
+	}
+
+	@Override
+	public String glGetShaderInfoLog(int shader) {
+		record("glGetShaderInfoLog");
+		return compileFailures ? "compile error" : "";
+	}
+
+	@Override
+	public int glCreateProgram() {
+		record("glCreateProgram");
+		return create();
+	}
+
+	@Override
+	public void glAttachShader(int program, int shader) {
+		record("glAttachShader");
+	}
+
+	@Override
+	public void glDetachShader(int program, int shader) {
+		record("glDetachShader");
+	}
+
+	@Override
+	public void glDeleteShader(int shader) {
+		record("glDeleteShader");
+		liveObjects.remove(shader);
+	}
+
+	@Override
+	public void glLinkProgram(int program) {
+		record("glLinkProgram");
+	}
+
+	@Override
+	public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+		record("glGetProgramiv");
+		params[offset] = linkFailures ? GLES20.GL_FALSE : GLES20.GL_TRUE;
+	}
+
+	@Override
+	public String glGetProgramInfoLog(int program) {
+		record("glGetProgramInfoLog");
+		return linkFailures ? "link error" : "";
+	}
+
+	@Override
+	public void glDeleteProgram(int program) {
+		record("glDeleteProgram");
+		liveObjects.remove(program);
+	}
+
+	@Override
+	public void glUseProgram(int program) {
+		record("glUseProgram");
+		stateChanges++;
+	}
+
+	@Override
+	public int glGetAttribLocation(int program, String name) {
+		record("glGetAttribLocation");
+		return 0;
+	}
+
+	@Override
+	public int glGetUniformLocation(int program, String name) {
+		record("glGetUniformLocation");
+		return 0;
+	}
+
+	@Override
+	public void glUniform1i(int location, int x) {
+		record("glUniform1i");
+	}
+
+	@Override
+	public void glUniform1f(int location, float x) {
+		record("glUniform1f");
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, float[] v, int offset) {
+		record("glUniform4fv");
+	}
+
+	@Override
+	public String glGetString(int name) {
+		record("glGetString");
+		return name == GLES20.GL_VERSION ? version : "";
+	}
+
+	@Override
+	public void glGetFloatv(int pname, float[] params, int offset) {
+		record("glGetFloatv");
+		params[offset] = 0;
+	}
+
+	@Override
+	public void glGetIntegerv(int pname, int[] params, int offset) {
+		record("glGetIntegerv");
+		params[offset] = pname == GLES20.GL_STENCIL_BITS ? stencilBits : 0;
+	}
+
+	@Override
+	public void glViewport(int x, int y, int width, int height) {
+		record("glViewport");
+		viewportWidth = width;
+		viewportHeight = height;
+	}
+
+	@Override
+	public void glClearColor(float red, float green, float blue, float alpha) {
+		record("glClearColor");
+	}
+
+	@Override
+	public void glClear(int mask) {
+		record("glClear");
+		if (stencil != null && (mask & GLES20.GL_STENCIL_BUFFER_BIT) != 0) {
+			Arrays.fill(stencil, 0);
+		}
+	}
+
+	@Override
+	public void glEnable(int cap) {
+		record("glEnable");
+		stateChanges++;
+		if (cap == GLES20.GL_BLEND) {
+			blendToggles++;
+		} else if (cap == GLES20.GL_STENCIL_TEST) {
+			stencilTest = true;
+		}
+	}
+
+	@Override
+	public void glDisable(int cap) {
+		record("glDisable");
+		stateChanges++;
+		if (cap == GLES20.GL_BLEND) {
+			blendToggles++;
+		} else if (cap == GLES20.GL_STENCIL_TEST) {
+			stencilTest = false;
+		}
+	}
+
+	@Override
+	public void glBlendFunc(int sfactor, int dfactor) {
+		record("glBlendFunc");
+		stateChanges++;
+	}
+
+	@Override
+	public void glStencilFunc(int func, int ref, int mask) {
+		record("glStencilFunc");
+		stateChanges++;
+		stencilFunc = func;
+		stencilRef = ref;
+		stencilMask = mask;
+	}
+
+	@Override
+	public void glStencilOp(int fail, int zfail, int zpass) {
+		record("glStencilOp");
+		stateChanges++;
+		stencilPassOp = zpass;
+	}
+
+	@Override
+	public void glGenBuffers(int n, int[] buffers, int offset) {
+		record("glGenBuffers");
+		generate(n, buffers, offset);
+	}
+
+	@Override
+	public void glDeleteBuffers(int n, int[] buffers, int offset) {
+		record("glDeleteBuffers");
+		delete(n, buffers, offset);
+	}
+
+	@Override
+	public void glBindBuffer(int target, int buffer) {
+		record("glBindBuffer");
+		stateChanges++;
+	}
+
+	@Override
+	public void glBufferData(int target, int size, Buffer data, int usage) {
+		record("glBufferData");
+		bufferUploads++;
+		uploadedBytes += data == null ? 0 : size;
+	}
+
+	@Override
+	public void glBufferSubData(int target, int offset, int size, Buffer data) {
+		record("glBufferSubData");
+		bufferUploads++;
+		uploadedBytes += size;
+	}
+
+	@Override
+	public void glEnableVertexAttribArray(int index) {
+		record("glEnableVertexAttribArray");
+		stateChanges++;
+	}
+
+	@Override
+	public void glDisableVertexAttribArray(int index) {
+		record("glDisableVertexAttribArray");
+		stateChanges++;
+	}
+
+	@Override
+	public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer ptr) {
+		record("glVertexAttribPointer");
+		stateChanges++;
+		// client-side array is copied by driver on every draw
+		bufferUploads++;
+		int elementSize = type == GLES20.GL_FLOAT ? GLShape.SIZE_OF_FLOAT : GLShape.SIZE_OF_SHORT;
+		clientArrayBytes += (long) ptr.remaining() * elementSize;
+		// all programs have position at location 0
+		if (index == 0) {
+			positions = ptr instanceof FloatBuffer ? (FloatBuffer) ptr : null;
+			compactPositions = ptr instanceof ShortBuffer && type == GLES20.GL_SHORT && normalized ? (ShortBuffer) ptr : null;
+			positionSize = size;
+			positionStride = stride == 0 ? size : stride / elementSize;
+		}
+	}
+
+	@Override
+	public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+		record("glVertexAttribPointer");
+		stateChanges++;
+		if (index == 0) {
+			positions = null;
+			compactPositions = null;
+		}
+	}
+
+	@Override
+	public void glDrawArrays(int mode, int first, int count) {
+		record("glDrawArrays");
+		drawCalls++;
+		if (!canRasterize()) {
+			return;
+		}
+		for (int i = first; i < first + count; i++) {
+			switch (mode) {
+				case GLES20.GL_POINTS:
+					// point size is passed in third component
+					rasterizePoint(getPosition(i, 0), getPosition(i, 1), positionSize > 2 ? getPosition(i, 2) : 1);
+					break;
+				case GLES20.GL_TRIANGLES:
+					if ((i - first) % 3 == 2) {
+						rasterize(getPosition(i - 2, 0), getPosition(i - 2, 1), getPosition(i - 1, 0), getPosition(i - 1, 1),
+								getPosition(i, 0), getPosition(i, 1));
+					}
+					break;
+				case GLES20.GL_TRIANGLE_STRIP:
+					if (i - first >= 2) {
+						rasterize(getPosition(i - 2, 0), getPosition(i - 2, 1), getPosition(i - 1, 0), getPosition(i - 1, 1),
+								getPosition(i, 0), getPosition(i, 1));
+					}
+					break;
+				case GLES20.GL_TRIANGLE_FAN:
+					if (i - first >= 2) {
+						rasterize(getPosition(first, 0), getPosition(first, 1), getPosition(i - 1, 0), getPosition(i - 1, 1),
+								getPosition(i, 0), getPosition(i, 1));
+					}
+					break;
+			}
+		}
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, Buffer indices) {
+		record("glDrawElements");
+		drawCalls++;
+		if (!canRasterize() || mode != GLES20.GL_TRIANGLES || !(indices instanceof ShortBuffer)) {
+			return;
+		}
+		ShortBuffer shortIndices = (ShortBuffer) indices;
+		int start = shortIndices.position();
+		for (int i = 0; i + 2 < count; i += 3) {
+			int a = shortIndices.get(start + i);
+			int b = shortIndices.get(start + i + 1);
+			int c = shortIndices.get(start + i + 2);
+			rasterize(getPosition(a, 0), getPosition(a, 1), getPosition(b, 0), getPosition(b, 1),
+					getPosition(c, 0), getPosition(c, 1));
+		}
+	}
+
+	@Override
+	public int glGetUniformBlockIndex(int program, String uniformBlockName) {
+		record("glGetUniformBlockIndex");
+		return 0;
+	}
+
+	@Override
+	public void glUniformBlockBinding(int program, int uniformBlockIndex, int uniformBlockBinding) {
+		record("glUniformBlockBinding");
+		stateChanges++;
+	}
+
+	@Override
+	public void glBindBufferBase(int target, int index, int buffer) {
+		record("glBindBufferBase");
+		stateChanges++;
+	}
+
+	@Override
+	public void glGenVertexArrays(int n, int[] arrays, int offset) {
+		record("glGenVertexArrays");
+		generate(n, arrays, offset);
+	}
+
+	@Override
+	public void glDeleteVertexArrays(int n, int[] arrays, int offset) {
+		record("glDeleteVertexArrays");
+		delete(n, arrays, offset);
+	}
+
+	@Override
+	public void glBindVertexArray(int array) {
+		record("glBindVertexArray");
+		stateChanges++;
+	}
+
+	@Override
+	public void glVertexAttribDivisor(int index, int divisor) {
+		record("glVertexAttribDivisor");
+		stateChanges++;
+	}
+
+	@Override
+	public void glDrawArraysInstanced(int mode, int first, int count, int instanceCount) {
+		record("glDrawArraysInstanced");
+		drawCalls++;
+	}
+}
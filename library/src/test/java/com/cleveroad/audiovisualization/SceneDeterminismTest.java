@@ -0,0 +1,122 @@
+package com.cleveroad.audiovisualization;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Seeded scene must produce the same output for the same frame times and data, independently of how time is split
+ * between frames.
+ */
+public class SceneDeterminismTest {
+
+	private static final float RATIO_Y = 0.5625f;
+	private static final float DELTA = 1e-5f;
+
+	/**
+	 * Frame times in milliseconds, including dropped and short frames.
+	 */
+	private static final float[] FRAME_TIMES = {16.7f, 16.6f, 33.4f, 8.3f, 25f, 16.7f, 50f, 16.7f};
+
+	/**
+	 * Instances of first three waves of top layer after {@link #runRecordedSequence(SceneModel)}.
+	 */
+	private static final float[] GOLDEN_WAVE_INSTANCES = {
+			-1.0f, -0.80998564f, -0.81739336f, -0.82101697f, -0.6781793f, -0.80998564f, -0.8595546f,
+			-0.6781793f, -0.80998564f, -0.5735626f, -0.80073863f, -0.42312947f, -0.80998564f, -0.8595546f,
+			-0.42312947f, -0.80998564f, -0.249677f, -0.82101697f, -0.1148996f, -0.80998564f, -0.8595546f,
+	};
+
+	/**
+	 * Instances of bubbles of bottom layer after {@link #runRecordedSequence(SceneModel)}.
+	 */
+	private static final float[] GOLDEN_BUBBLE_INSTANCES = {
+			-0.97210556f, -0.36051285f, 0.05f, 1.0f,
+			-0.06411933f, -0.44802216f, 0.05f, 1.0f,
+			0.7438685f, -0.48973763f, 0.05f, 1.0f,
+			-0.70428705f, -0.4418627f, 0.05f, 1.0f,
+	};
+
+	private GLAudioVisualizationView.Configuration configuration;
+
+	@Before
+	public void setUp() throws Exception {
+		configuration = TestConfigurations.create();
+	}
+
+	private SceneModel createScene() {
+		return new SceneModel(configuration, TestConfigurations.SCREEN_HEIGHT, new Random(configuration.randomSeed),
+				LayerModel.OUTPUT_MESH);
+	}
+
+	private void sendData(SceneModel scene, float dBm, float amplitude) {
+		scene.onDataReceived(TestConfigurations.fill(configuration, dBm), TestConfigurations.fill(configuration, amplitude));
+	}
+
+	/**
+	 * Run 40 frames with new data every 10 frames.
+	 */
+	private void runRecordedSequence(SceneModel scene) {
+		for (int frame = 0; frame < 40; frame++) {
+			if (frame % 10 == 0) {
+				sendData(scene, 0.9f - frame * 0.02f, 1f + frame);
+			}
+			scene.update(FRAME_TIMES[frame % FRAME_TIMES.length], RATIO_Y);
+		}
+	}
+
+	private static float[] getWaveInstances(SceneModel scene) {
+		LayerModel top = scene.getLayers()[scene.getLayers().length - 1];
+		return Arrays.copyOfRange(top.getWaveInstances(), WavesModel.FLOATS_PER_INSTANCE, 4 * WavesModel.FLOATS_PER_INSTANCE);
+	}
+
+	private static float[] getBubbleInstances(SceneModel scene) {
+		LayerModel bottom = scene.getLayers()[0];
+		return Arrays.copyOf(bottom.getBubbleInstances(), bottom.getBubblesCount() * LayerModel.FLOATS_PER_BUBBLE);
+	}
+
+	@Test
+	public void sameSeedAndFrameTimesGiveGoldenOutput() throws Exception {
+		for (int run = 0; run < 2; run++) {
+			SceneModel scene = createScene();
+			runRecordedSequence(scene);
+			assertArrayEquals(GOLDEN_WAVE_INSTANCES, getWaveInstances(scene), DELTA);
+			assertArrayEquals(GOLDEN_BUBBLE_INSTANCES, getBubbleInstances(scene), DELTA);
+		}
+	}
+
+	@Test
+	public void splitFrameGivesTheSameSteps() throws Exception {
+		SceneModel whole = createScene();
+		SceneModel split = createScene();
+		sendData(whole, 0.9f, 1f);
+		sendData(split, 0.9f, 1f);
+		for (int frame = 0; frame < 20; frame++) {
+			whole.update(50f, RATIO_Y);
+			split.update(10f, RATIO_Y);
+			split.update(15f, RATIO_Y);
+			split.update(25f, RATIO_Y);
+			assertArrayEquals(getWaveInstances(whole), getWaveInstances(split), DELTA);
+			assertArrayEquals(getBubbleInstances(whole), getBubbleInstances(split), DELTA);
+		}
+	}
+
+	@Test
+	public void frameRateDoesNotChangeSimulation() throws Exception {
+		SceneModel slow = createScene();
+		SceneModel fast = createScene();
+		sendData(slow, 0.9f, 1f);
+		sendData(fast, 0.9f, 1f);
+		for (int frame = 0; frame < 30; frame++) {
+			slow.update(2 * SceneModel.STEP, RATIO_Y);
+			fast.update(SceneModel.STEP, RATIO_Y);
+			fast.update(SceneModel.STEP, RATIO_Y);
+		}
+		assertArrayEquals(getWaveInstances(slow), getWaveInstances(fast), DELTA);
+		assertArrayEquals(getBubbleInstances(slow), getBubbleInstances(fast), DELTA);
+	}
+}
@@ -0,0 +1,168 @@
+package com.cleveroad.audiovisualization;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Simulation of scene on JVM: waves and bubbles output and calming down.
+ */
+public class SceneModelTest {
+
+	private static final float RATIO_Y = (float) TestConfigurations.SURFACE_WIDTH / TestConfigurations.SURFACE_HEIGHT;
+
+	private GLAudioVisualizationView.Configuration configuration;
+	private SceneModel scene;
+
+	@Before
+	public void setUp() throws Exception {
+		configuration = TestConfigurations.create();
+		scene = new SceneModel(configuration, TestConfigurations.SCREEN_HEIGHT, new Random(configuration.randomSeed),
+				LayerModel.OUTPUT_MESH | LayerModel.OUTPUT_BUBBLE_MESH);
+	}
+
+	private boolean run(int steps) {
+		boolean calmedDown = false;
+		for (int i = 0; i < steps; i++) {
+			calmedDown = scene.update(SceneModel.STEP, RATIO_Y);
+		}
+		return calmedDown;
+	}
+
+	private void sendData(float dBm, float amplitude) {
+		scene.onDataReceived(TestConfigurations.fill(configuration, dBm), TestConfigurations.fill(configuration, amplitude));
+	}
+
+	private static float getMaxY(float[] vertices) {
+		float maxY = -Float.MAX_VALUE;
+		for (int i = 1; i < vertices.length; i += SceneModel.COORDS_PER_VERTEX) {
+			maxY = Math.max(maxY, vertices[i]);
+		}
+		return maxY;
+	}
+
+	private int getBubblesCount() {
+		int count = 0;
+		for (LayerModel layer : scene.getLayers()) {
+			count += layer.getBubblesCount();
+		}
+		return count;
+	}
+
+	@Test
+	public void everyLayerProducesRequestedOutputs() throws Exception {
+		assertEquals(configuration.layersCount, scene.getLayers().length);
+		for (LayerModel layer : scene.getLayers()) {
+			assertEquals(LayerModel.OUTPUT_MESH | LayerModel.OUTPUT_BUBBLE_MESH, layer.getOutputs());
+			assertNotNull(layer.getMeshVertices());
+			assertNotNull(layer.getBubbleVertices());
+			assertEquals(configuration.wavesCount + 1, layer.getWaveInstancesCount());
+			assertEquals(configuration.bubblesPerLayer, layer.getBubblesCapacity());
+		}
+		scene = new SceneModel(configuration, TestConfigurations.SCREEN_HEIGHT, new Random(0), 0);
+		for (LayerModel layer : scene.getLayers()) {
+			assertNull(layer.getMeshVertices());
+			assertNull(layer.getBubbleVertices());
+		}
+	}
+
+	@Test
+	public void wavesStayInsideViewport() throws Exception {
+		sendData(1f, 1f);
+		for (int i = 0; i < 60; i++) {
+			run(1);
+			for (LayerModel layer : scene.getLayers()) {
+				for (float coordinate : layer.getMeshVertices()) {
+					assertFalse(Float.isNaN(coordinate));
+					assertTrue(coordinate >= -1 && coordinate <= 1);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void dataRaisesWaves() throws Exception {
+		run(30);
+		float[] calmHeights = new float[configuration.layersCount];
+		for (int i = 0; i < calmHeights.length; i++) {
+			calmHeights[i] = getMaxY(scene.getLayers()[i].getMeshVertices());
+		}
+		sendData(1f, 1f);
+		run(30);
+		for (int i = 0; i < calmHeights.length; i++) {
+			assertTrue(getMaxY(scene.getLayers()[i].getMeshVertices()) > calmHeights[i]);
+		}
+	}
+
+	@Test
+	public void loudDataProducesBubbles() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			sendData(0.9f, 1f + i);
+			run(1);
+		}
+		assertTrue(getBubblesCount() > 0);
+		// bubbles sway around point they were spawned at
+		float maxX = 1 + configuration.bubbleSize / 2 + 0.05f;
+		for (LayerModel layer : scene.getLayers()) {
+			assertTrue(layer.getBubblesCount() <= layer.getBubblesCapacity());
+			float[] instances = layer.getBubbleInstances();
+			for (int i = 0; i < layer.getBubblesCount(); i++) {
+				int offset = i * LayerModel.FLOATS_PER_BUBBLE;
+				assertTrue(instances[offset] >= -maxX && instances[offset] <= maxX);
+				assertEquals(configuration.bubbleSize, instances[offset + 2], 0);
+			}
+		}
+	}
+
+	@Test
+	public void quietDataProducesNoBubbles() throws Exception {
+		sendData(0.2f, 1f);
+		run(30);
+		assertEquals(0, getBubblesCount());
+	}
+
+	@Test
+	public void bubblesLimitIsRespected() throws Exception {
+		scene.setBubblesLimit(1);
+		for (int i = 0; i < 10; i++) {
+			sendData(0.9f, 1f + i);
+			run(1);
+		}
+		for (LayerModel layer : scene.getLayers()) {
+			assertTrue(layer.getBubblesCount() <= 1);
+		}
+	}
+
+	@Test
+	public void sceneCalmsDownWithoutData() throws Exception {
+		sendData(0.9f, 1f);
+		assertFalse(run(10));
+		assertTrue(scene.isAnimating());
+		sendData(0f, 0f);
+		boolean calmedDown = false;
+		for (int i = 0; i < 600 && !calmedDown; i++) {
+			calmedDown = run(1);
+		}
+		assertTrue(calmedDown);
+		// bubbles keep floating after waves are calmed down
+		for (int i = 0; i < 600 && scene.isAnimating(); i++) {
+			run(1);
+		}
+		assertFalse(scene.isAnimating());
+		assertEquals(0, getBubblesCount());
+	}
+
+	@Test
+	public void shortFrameDoesNotStepSimulation() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			sendData(0.9f, 1f + i);
+		}
+		scene.update(SceneModel.STEP / 2, RATIO_Y);
+		assertEquals(0, getBubblesCount());
+		scene.update(SceneModel.STEP / 2, RATIO_Y);
+		assertTrue(getBubblesCount() > 0);
+	}
+}
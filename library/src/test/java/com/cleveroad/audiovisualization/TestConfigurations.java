@@ -0,0 +1,51 @@
+package com.cleveroad.audiovisualization;
+
+import java.util.Arrays;
+
+/**
+ * Configurations for unit tests, filled the same way as attributes with default values would do.
+ */
+class TestConfigurations {
+
+	static final float SCREEN_HEIGHT = 1920;
+	static final int SURFACE_WIDTH = 1080;
+	static final int SURFACE_HEIGHT = 1920;
+
+	private TestConfigurations() {
+	}
+
+	/**
+	 * Create configuration with 4 layers of 7 waves, 16 bubbles per layer and fixed random seed.
+	 */
+	static GLAudioVisualizationView.Configuration create() {
+		GLAudioVisualizationView.Configuration configuration = new GLAudioVisualizationView.Configuration();
+		configuration.wavesCount = 7;
+		configuration.layersCount = 4;
+		configuration.bubblesPerLayer = 16;
+		configuration.bubbleSize = 0.05f;
+		configuration.waveHeight = 60;
+		configuration.footerHeight = 170;
+		configuration.bubblesRenderMode = GLAudioVisualizationView.BUBBLES_RENDER_MODE_CIRCLES;
+		configuration.renderMode = GLAudioVisualizationView.RENDER_MODE_CONTINUOUS;
+		configuration.maxFps = 60;
+		configuration.surfaceFormat = GLAudioVisualizationView.SURFACE_FORMAT_RGBA8888;
+		configuration.renderScale = 1f;
+		configuration.hasRandomSeed = true;
+		configuration.randomSeed = 42;
+		configuration.backgroundColor = new float[]{0.1f, 0.1f, 0.1f, 1f};
+		configuration.layerColors = new float[configuration.layersCount][];
+		for (int i = 0; i < configuration.layersCount; i++) {
+			configuration.layerColors[i] = new float[]{0.2f * i, 0.5f, 1f - 0.2f * i, 1f};
+		}
+		return configuration;
+	}
+
+	/**
+	 * Create array of the same value for every layer.
+	 */
+	static float[] fill(GLAudioVisualizationView.Configuration configuration, float value) {
+		float[] array = new float[configuration.layersCount];
+		Arrays.fill(array, value);
+		return array;
+	}
+}
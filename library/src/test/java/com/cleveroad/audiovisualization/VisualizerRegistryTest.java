@@ -0,0 +1,271 @@
+package com.cleveroad.audiovisualization;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.media.audiofx.Visualizer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sharing of visualizers between wrappers, checked with counting visualizer stubs.
+ */
+public class VisualizerRegistryTest {
+
+    private static final int MAX_CAPTURE_SIZE = 1024;
+    private static final int MIN_CAPTURE_SIZE = 128;
+
+    private FakeFactory factory;
+    private VisualizerRegistry.Factory previousFactory;
+    private final Context context = null;
+
+    @Before
+    public void setUp() throws Exception {
+        factory = new FakeFactory();
+        previousFactory = VisualizerRegistry.setFactory(factory);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        VisualizerRegistry.setFactory(previousFactory);
+    }
+
+    private VisualizerWrapper createWrapper(int audioSessionId, final int[] captures) {
+        return new VisualizerWrapper(context, audioSessionId, new VisualizerWrapper.OnFftDataCaptureListener() {
+            @Override
+            public void onFftDataCapture(byte[] fft) {
+                captures[0]++;
+            }
+        });
+    }
+
+    @Test
+    public void wrappersOfSessionShareVisualizer() throws Exception {
+        int[] captures = new int[1];
+        VisualizerWrapper first = createWrapper(7, captures);
+        VisualizerWrapper second = createWrapper(7, captures);
+        VisualizerWrapper other = createWrapper(8, captures);
+        assertEquals(2, factory.visualizers.size());
+        assertEquals(2, factory.getAliveCount());
+        first.release();
+        assertEquals(2, factory.getAliveCount());
+        second.release();
+        // double release is ignored
+        second.release();
+        assertEquals(1, factory.getAliveCount());
+        other.release();
+        assertEquals(0, factory.getAliveCount());
+    }
+
+    @Test
+    public void captureIsDeliveredToEveryEnabledWrapper() throws Exception {
+        int[] firstCaptures = new int[1];
+        int[] secondCaptures = new int[1];
+        VisualizerWrapper first = createWrapper(7, firstCaptures);
+        VisualizerWrapper second = createWrapper(7, secondCaptures);
+        FakeVisualizer visualizer = factory.visualizers.get(0);
+        assertNull(visualizer.listener);
+        first.setEnabled(true);
+        second.setEnabled(true);
+        visualizer.capture(new byte[]{1, 2});
+        assertEquals(1, firstCaptures[0]);
+        assertEquals(1, secondCaptures[0]);
+        first.release();
+        visualizer.capture(new byte[]{1, 2});
+        assertEquals(1, firstCaptures[0]);
+        assertEquals(2, secondCaptures[0]);
+        // listener is detached while no wrapper is enabled
+        second.setEnabled(false);
+        assertNull(visualizer.listener);
+        second.release();
+    }
+
+    @Test
+    public void captureSizeIsReducedWhenEveryWrapperAsks() throws Exception {
+        int[] captures = new int[1];
+        VisualizerWrapper first = createWrapper(7, captures);
+        VisualizerWrapper second = createWrapper(7, captures);
+        FakeVisualizer visualizer = factory.visualizers.get(0);
+        assertEquals(MAX_CAPTURE_SIZE, visualizer.getCaptureSize());
+        first.setReducedCaptureSize(true);
+        assertEquals(MAX_CAPTURE_SIZE, visualizer.getCaptureSize());
+        second.setReducedCaptureSize(true);
+        assertEquals(MAX_CAPTURE_SIZE / 4, visualizer.getCaptureSize());
+        // new wrapper wants full size
+        VisualizerWrapper third = createWrapper(7, captures);
+        assertEquals(MAX_CAPTURE_SIZE, visualizer.getCaptureSize());
+        third.release();
+        assertEquals(MAX_CAPTURE_SIZE / 4, visualizer.getCaptureSize());
+        first.release();
+        second.release();
+    }
+
+    @Test
+    public void silentPlayerIsReleasedIfVisualizerFails() throws Exception {
+        factory.silentPlayers = true;
+        factory.failure = new UnsupportedOperationException("no permission");
+        try {
+            createWrapper(7, new int[1]);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertSame(factory.failure, e);
+        }
+        assertEquals(1, factory.players.size());
+        assertTrue(factory.players.get(0).released);
+        // failed entry isn't kept
+        factory.failure = null;
+        VisualizerWrapper wrapper = createWrapper(7, new int[1]);
+        assertEquals(1, factory.visualizers.size());
+        wrapper.release();
+        assertTrue(factory.players.get(1).released);
+        assertEquals(0, factory.getAliveCount());
+    }
+
+    @Test
+    public void visualizerIsReleasedOutsideOfLocks() throws Exception {
+        final VisualizerWrapper wrapper = createWrapper(7, new int[1]);
+        final boolean[] obtained = new boolean[1];
+        factory.visualizers.get(0).onRelease = new Runnable() {
+            @Override
+            public void run() {
+                // visualizer of other session can be obtained from other thread while this one is being released
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        createWrapper(8, new int[1]).release();
+                        obtained[0] = true;
+                    }
+                });
+                thread.start();
+                try {
+                    thread.join(5000);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        };
+        wrapper.release();
+        assertTrue(obtained[0]);
+        assertEquals(0, factory.getAliveCount());
+    }
+
+    private static class FakeFactory extends VisualizerRegistry.Factory {
+
+        private final List<FakeVisualizer> visualizers = new ArrayList<>();
+        private final List<FakePlayer> players = new ArrayList<>();
+        private boolean silentPlayers;
+        private RuntimeException failure;
+
+        @Override
+        MediaPlayer createSilentPlayer(Context context) {
+            if (!silentPlayers) {
+                return null;
+            }
+            FakePlayer player = new FakePlayer();
+            players.add(player);
+            return player;
+        }
+
+        @Override
+        Visualizer createVisualizer(int audioSessionId) {
+            if (failure != null) {
+                throw failure;
+            }
+            FakeVisualizer visualizer = new FakeVisualizer(audioSessionId);
+            visualizers.add(visualizer);
+            return visualizer;
+        }
+
+        @Override
+        int[] getCaptureSizeRange() {
+            return new int[]{MIN_CAPTURE_SIZE, MAX_CAPTURE_SIZE};
+        }
+
+        @Override
+        int getMaxCaptureRate() {
+            return 20000;
+        }
+
+        int getAliveCount() {
+            int count = 0;
+            for (FakeVisualizer visualizer : visualizers) {
+                if (!visualizer.released) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    private static class FakeVisualizer extends Visualizer {
+
+        private boolean enabled;
+        private int captureSize;
+        private boolean released;
+        private OnDataCaptureListener listener;
+        private Runnable onRelease;
+
+        FakeVisualizer(int audioSession) {
+            super(audioSession);
+        }
+
+        void capture(byte[] fft) {
+            assertTrue(enabled);
+            listener.onFftDataCapture(this, fft, 44100);
+        }
+
+        @Override
+        public int setEnabled(boolean enabled) {
+            this.enabled = enabled;
+            return SUCCESS;
+        }
+
+        @Override
+        public boolean getEnabled() {
+            return enabled;
+        }
+
+        @Override
+        public int setCaptureSize(int size) {
+            assertFalse("capture size can be changed only while visualizer is disabled", enabled);
+            captureSize = size;
+            return SUCCESS;
+        }
+
+        @Override
+        public int getCaptureSize() {
+            return captureSize;
+        }
+
+        @Override
+        public int setDataCaptureListener(OnDataCaptureListener listener, int rate, boolean waveform, boolean fft) {
+            this.listener = listener;
+            return SUCCESS;
+        }
+
+        @Override
+        public void release() {
+            assertFalse(released);
+            if (onRelease != null) {
+                onRelease.run();
+            }
+            released = true;
+        }
+    }
+
+    private static class FakePlayer extends MediaPlayer {
+
+        private boolean released;
+
+        @Override
+        public void release() {
+            released = true;
+        }
+    }
+}
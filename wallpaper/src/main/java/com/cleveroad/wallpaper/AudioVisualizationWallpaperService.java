@@ -117,13 +117,15 @@ public class AudioVisualizationWallpaperService extends WallpaperService {
                     .setWavesFooterHeight(R.dimen.footer_height)
                     .setWavesCount(7)
                     .setLayersCount(4)
-                    .setBubblesPerLayer(10);
+                    .setBubblesPerLayer(10)
+                    .setMaxFps(30)
+                    .setQualityGovernor(true);
             readConfiguration(context, preferences, builder);
             renderer = new GLAudioVisualizationView.RendererBuilder(builder)
                     .glSurfaceView(audioVisualizationView)
                     .handler(dbmHandler)
+                    .configure(audioVisualizationView)
                     .build();
-            audioVisualizationView.setEGLContextClientVersion(2);
             audioVisualizationView.setRenderer(renderer);
         }
 